@@ -0,0 +1,94 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.PrimitiveAmlMessageBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Column scans over a million messages, compared between heap and off-heap columns.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AmlMessageBatchBenchmark {
+    private static final int SIZE = 1_000_000;
+
+    private static final long START = 1374070775L;
+
+    @Param({"true", "false"})
+    private boolean offHeap;
+
+    private AmlMessageBatch batch;
+
+    @Setup
+    public void setup() {
+        batch = offHeap ? AmlMessageBatch.offHeap(SIZE) : AmlMessageBatch.onHeap(SIZE);
+        Random random = new Random(42);
+        PositioningMethod[] methods = PositioningMethod.values();
+        for (int i = 0; i < SIZE; i++) {
+            PrimitiveAmlMessageBuilder<AmlMessageBatch> appender = batch.appender();
+            appender.version(1);
+            appender.latitude(random.nextDouble() * 180 - 90);
+            appender.longitude(random.nextDouble() * 360 - 180);
+            appender.radiusMeters(random.nextInt(200));
+            appender.timeOfPositioning(START + i);
+            appender.positionMethod(methods[random.nextInt(methods.length)]);
+            appender.length(128);
+            appender.build();
+        }
+    }
+
+    @Benchmark
+    public int gnssWithSmallRadiusInTimeWindow() {
+        return batch.select()
+                .positionMethod(PositioningMethod.GNSS)
+                .radiusBelow(50)
+                .timeOfPositioningBetween(Instant.ofEpochSecond(START + SIZE / 4), Instant.ofEpochSecond(START + SIZE / 2))
+                .count();
+    }
+
+    @Benchmark
+    public int boundingBox() {
+        return batch.select().within(45, 50, 5, 15).count();
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.exceptions.AmlException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Binary records compared to the text form of the same message.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AmlMessageCodecBenchmark {
+    private final AmlMessageParser parser = new AmlMessageParser();
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(AmlMessageCodec.RECORD_SIZE);
+
+    private final AmlMessageRecord record = new AmlMessageRecord();
+
+    private final AmlMessageWriter writer = new AmlMessageWriter();
+
+    private final ByteBuffer textBuffer = ByteBuffer.allocateDirect(256);
+
+    private String text;
+
+    private AmlMessage message;
+
+    @Setup
+    public void setup() throws AmlException {
+        text = AmlMessageParserBenchmark.Messages.VALID.message();
+        message = parser.parse(text);
+        AmlMessageCodec.encode(message, buffer, 0);
+    }
+
+    @Benchmark
+    public ByteBuffer encode() {
+        AmlMessageCodec.encode(message, buffer, 0);
+        return buffer;
+    }
+
+    @Benchmark
+    public AmlMessage decode() {
+        return AmlMessageCodec.decode(buffer, 0);
+    }
+
+    @Benchmark
+    public double recordLocation() {
+        record.wrap(buffer, 0);
+        return record.getLatitude() + record.getLongitude();
+    }
+
+    @Benchmark
+    public ByteBuffer writeText() {
+        textBuffer.clear();
+        writer.write(message, textBuffer);
+        return textBuffer;
+    }
+
+    @Benchmark
+    public AmlMessage parseText() throws AmlException {
+        return parser.parse(text);
+    }
+}
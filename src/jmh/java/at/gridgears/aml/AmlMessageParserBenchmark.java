@@ -0,0 +1,208 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.AmlMessageBuilderAdapter;
+import at.gridgears.aml.builder.SelectiveAmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.EnumSet;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End to end parsing of the message kinds seen in production traffic.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AmlMessageParserBenchmark {
+
+    @Param({"VALID", "NO_RADIUS", "INVALID_LENGTH", "UNKNOWN_ATTRIBUTE", "UNKNOWN_VERSION"})
+    private Messages kind;
+
+    private final AmlMessageParser parser = new AmlMessageParser();
+
+    private final AmlMessageParser rulesParser = new AmlMessageParser(AmlSchema.DEFAULT, AmlRules.STANDARD);
+
+    private final CachingAmlMessageParser cachingParser = new CachingAmlMessageParser(parser, 1024);
+
+    private final AmlMessageParser reusingParser = AmlMessageParser.withThreadLocalBuilders();
+
+    private final NoOpBuilder noOpBuilder = new NoOpBuilder();
+
+    private final RoutingBuilder routingBuilder = new RoutingBuilder();
+
+    private final AmlMessageView view = parser.newView();
+
+    private String message;
+
+    private byte[] gsm7UserData;
+
+    @Setup
+    public void setup() {
+        message = kind.message();
+        gsm7UserData = new byte[(message.length() * 7 + 7) / 8];
+        for (int i = 0; i < message.length(); i++) {
+            int bit = i * 7;
+            gsm7UserData[bit / 8] |= (byte) (message.charAt(i) << (bit % 8));
+            if (bit % 8 > 1) {
+                gsm7UserData[bit / 8 + 1] |= (byte) (message.charAt(i) >> (8 - bit % 8));
+            }
+        }
+    }
+
+    @Benchmark
+    public Object parse() {
+        try {
+            return parser.parse(message);
+        } catch (AmlException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseWithNoOpBuilder() {
+        try {
+            return parser.parse(message, noOpBuilder);
+        } catch (AmlException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseWithRoutingBuilder() {
+        try {
+            return parser.parse(message, routingBuilder);
+        } catch (AmlException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object parseWithThreadLocalBuilders() {
+        try {
+            return reusingParser.parse(message);
+        } catch (AmlException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object viewLocation() {
+        try {
+            view.wrap(message);
+            return view.getLatitude() + view.getLongitude();
+        } catch (AmlException e) {
+            return e;
+        }
+    }
+
+    @Benchmark
+    public Object tryParse() {
+        return parser.tryParse(message);
+    }
+
+    @Benchmark
+    public Object tryParseCached() {
+        return cachingParser.tryParse(message);
+    }
+
+    @Benchmark
+    public Object tryParseGsm7() {
+        return parser.tryParseGsm7(gsm7UserData, 0, 0, message.length());
+    }
+
+    /**
+     * Baseline for {@link #tryParseGsm7()}, unpacking a septet at a time into a String first.
+     */
+    @Benchmark
+    public Object tryParseGsm7AsString() {
+        StringBuilder text = new StringBuilder(message.length());
+        for (int i = 0; i < message.length(); i++) {
+            int bit = i * 7;
+            int window = (gsm7UserData[bit / 8] & 0xff) | (bit / 8 + 1 < gsm7UserData.length ? (gsm7UserData[bit / 8 + 1] & 0xff) << 8 : 0);
+            text.append((char) (window >>> (bit % 8) & 0x7f));
+        }
+        return parser.tryParse(text.toString());
+    }
+
+    @Benchmark
+    public Object tryParseWithRules() {
+        return rulesParser.tryParse(message);
+    }
+
+    public enum Messages {
+        VALID("A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128"),
+        NO_RADIUS("A\"ML=1;lt=+00.00000;lg=+000.00000;rd=N;top=20130717141935;lc=90;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=129"),
+        INVALID_LENGTH("A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=10"),
+        UNKNOWN_ATTRIBUTE("A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;kl=23;ml=134"),
+        UNKNOWN_VERSION("A\"ML=2;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128");
+
+        private final String message;
+
+        Messages(String message) {
+            this.message = message;
+        }
+
+        String message() {
+            return message;
+        }
+    }
+
+    private static class NoOpBuilder extends AmlMessageBuilderAdapter<Object> {
+        private static final Object RESULT = new Object();
+
+        @Override
+        public Object build() {
+            return RESULT;
+        }
+    }
+
+    /**
+     * Uses the location only, like a service routing calls to the responsible dispatch center.
+     */
+    private static final class RoutingBuilder extends NoOpBuilder implements SelectiveAmlMessageBuilder<Object> {
+        private static final long CONSUMED = AttributeName.maskOf(EnumSet.of(AttributeName.LATITUDE, AttributeName.LONGITUDE, AttributeName.RADIUS, AttributeName.POSITIONING_METHOD));
+
+        @Override
+        public long consumedAttributes() {
+            return CONSUMED;
+        }
+    }
+}
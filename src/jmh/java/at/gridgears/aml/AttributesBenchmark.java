@@ -0,0 +1,89 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scanning a message into attributes and decoding single attribute values.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AttributesBenchmark {
+
+    private final String message = AmlMessageParserBenchmark.Messages.VALID.message();
+
+    private Attributes attributes;
+
+    @Setup
+    public void setup() {
+        attributes = Attributes.parse(message);
+    }
+
+    @Benchmark
+    public Attributes parse() {
+        return Attributes.parse(message);
+    }
+
+    @Benchmark
+    public Object getStringValue() {
+        return attributes.get(AttributeName.IMSI, Attribute::getStringValue);
+    }
+
+    @Benchmark
+    public Object getIntegerValue() {
+        return attributes.get(AttributeName.LEVEL_OF_CONFIDENCE, Attribute::getIntegerValue);
+    }
+
+    @Benchmark
+    public Object getDoubleValue() {
+        return attributes.get(AttributeName.LATITUDE, Attribute::getDoubleValue);
+    }
+
+    @Benchmark
+    public Object getInstantValue() {
+        return attributes.get(AttributeName.TIME_OF_POSITIONING, Attribute::getInstantValue);
+    }
+
+    @Benchmark
+    public Object getPositioningMethod() {
+        return attributes.get(AttributeName.POSITIONING_METHOD, Attribute::getPositioningMethod);
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.AmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlParseException;
+import at.gridgears.aml.exceptions.AmlValidationException;
+import at.gridgears.aml.validation.Validator;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Parses the attributes of AML delivered in the body of an HTTPS request with the schema, rules and builders of an
+ * {@link AmlMessageParser}, so both channels share one engine. The names are those of the SMS, e.g. {@code lt} and
+ * {@code A"ML}. There is no ml attribute to check, it is passed to the builder if present.
+ * <p>
+ * The body is decoded in place into the layout of an SMS, so no String is created for it, but the given range of the
+ * array is overwritten. Syntax errors of the encoding are reported as {@link ParseError#MALFORMED_BODY} with the
+ * offset into the body, the offsets of other errors refer to the decoded attributes.
+ */
+public abstract class AmlBodyParser {
+    private final AmlMessageParser parser;
+
+    AmlBodyParser(AmlMessageParser parser) {
+        this.parser = parser;
+    }
+
+    public <T> T parse(byte[] body, int offset, int length, AmlMessageBuilder<T> builder, Validator<T> validator) throws AmlParseException, AmlValidationException {
+        return parser.parseBody(decodeOrThrow(body, offset, length), builder, validator);
+    }
+
+    public AmlMessage parse(byte[] body, int offset, int length) throws AmlParseException, AmlValidationException {
+        return parser.parseBody(decodeOrThrow(body, offset, length));
+    }
+
+    /**
+     * Parses the body between position and limit of the buffer. Bodies of direct and read-only buffers are copied
+     * before they are decoded. The position of the buffer is not changed.
+     */
+    public <T> T parse(ByteBuffer body, AmlMessageBuilder<T> builder, Validator<T> validator) throws AmlParseException, AmlValidationException {
+        return body.hasArray() ? parse(body.array(), body.arrayOffset() + body.position(), body.remaining(), builder, validator) : parse(copyOf(body), 0, body.remaining(), builder, validator);
+    }
+
+    public AmlMessage parse(ByteBuffer body) throws AmlParseException, AmlValidationException {
+        return body.hasArray() ? parse(body.array(), body.arrayOffset() + body.position(), body.remaining()) : parse(copyOf(body), 0, body.remaining());
+    }
+
+    public <T> ParseResult<T> tryParse(byte[] body, int offset, int length, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        int decoded = decodeRange(body, offset, length);
+        return decoded < 0 ? ParseResult.failure(ParseError.MALFORMED_BODY, null, ~decoded) : parser.tryParseBody(new ByteArrayCharSequence(body, offset, decoded), builder, validator);
+    }
+
+    public ParseResult<AmlMessage> tryParse(byte[] body, int offset, int length) {
+        int decoded = decodeRange(body, offset, length);
+        return decoded < 0 ? ParseResult.failure(ParseError.MALFORMED_BODY, null, ~decoded) : parser.tryParseBody(new ByteArrayCharSequence(body, offset, decoded));
+    }
+
+    public <T> ParseResult<T> tryParse(ByteBuffer body, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        return body.hasArray() ? tryParse(body.array(), body.arrayOffset() + body.position(), body.remaining(), builder, validator) : tryParse(copyOf(body), 0, body.remaining(), builder, validator);
+    }
+
+    public ParseResult<AmlMessage> tryParse(ByteBuffer body) {
+        return body.hasArray() ? tryParse(body.array(), body.arrayOffset() + body.position(), body.remaining()) : tryParse(copyOf(body), 0, body.remaining());
+    }
+
+    /**
+     * Decodes the body in place into {@code name=value;} attributes starting at the offset. Only bytes which have
+     * already been read may be written.
+     *
+     * @return the length of the decoded attributes or the complement {@code ~offset} of the offset of a syntax error
+     * relative to the start of the body
+     */
+    abstract int decode(byte[] body, int offset, int length);
+
+    /**
+     * @return whether the byte decoded from a name or value would be taken for a separator by the scanner, which is
+     * only allowed for {@code '='} in values
+     */
+    static boolean isSeparator(int decoded, boolean inValue) {
+        return decoded == ';' || decoded == '=' && !inValue;
+    }
+
+    private CharSequence decodeOrThrow(byte[] body, int offset, int length) throws AmlParseException {
+        int decoded = decodeRange(body, offset, length);
+        if (decoded < 0) {
+            throw new AmlParseException("malformed body at offset " + ~decoded);
+        }
+        return new ByteArrayCharSequence(body, offset, decoded);
+    }
+
+    private int decodeRange(byte[] body, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > body.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + body.length);
+        }
+        return decode(body, offset, length);
+    }
+
+    private static byte[] copyOf(ByteBuffer body) {
+        byte[] bytes = new byte[body.remaining()];
+        body.duplicate().get(bytes);
+        return bytes;
+    }
+}
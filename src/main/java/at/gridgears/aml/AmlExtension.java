@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * An attribute beyond the ones defined by AML, e.g. of a national variant, declared by its key, the type of its
+ * value and the decoder of the value. Extensions are made known to the parser through an {@link AmlSchema}.
+ * <p>
+ * The decoder receives the characters of a present attribute value and returns {@code null} if they cannot be
+ * decoded, which the parser reports as {@link ParseError#INVALID_VALUE}.
+ *
+ * @param <V> the type of the decoded value
+ */
+public final class AmlExtension<V> {
+    private final String key;
+
+    private final Class<V> type;
+
+    private final Function<? super CharSequence, ? extends V> decoder;
+
+    private AmlExtension(String key, Class<V> type, Function<? super CharSequence, ? extends V> decoder) {
+        this.key = Objects.requireNonNull(key, "key");
+        this.type = Objects.requireNonNull(type, "type");
+        this.decoder = Objects.requireNonNull(decoder, "decoder");
+    }
+
+    public static <V> AmlExtension<V> of(String key, Class<V> type, Function<? super CharSequence, ? extends V> decoder) {
+        return new AmlExtension<>(key, type, decoder);
+    }
+
+    public static AmlExtension<String> ofString(String key) {
+        return of(key, String.class, value -> value.length() == 0 ? null : value.toString());
+    }
+
+    public static AmlExtension<Integer> ofInteger(String key) {
+        return of(key, Integer.class, value -> {
+            long intValue = Attribute.intValue(value, 0, value.length());
+            return intValue == Attribute.INVALID_INT ? null : Integer.valueOf((int) intValue);
+        });
+    }
+
+    public static AmlExtension<Double> ofDouble(String key) {
+        return of(key, Double.class, value -> {
+            double doubleValue = DecimalParser.parse(value, 0, value.length());
+            return Double.isNaN(doubleValue) ? null : Double.valueOf(doubleValue);
+        });
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public Class<V> getType() {
+        return type;
+    }
+
+    /**
+     * @return the decoded value or {@code null} if the value cannot be decoded
+     */
+    V decode(CharSequence value) {
+        return type.cast(decoder.apply(value));
+    }
+
+    @Override
+    public String toString() {
+        return key + ':' + type.getSimpleName();
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Parses AML from an {@code application/x-www-form-urlencoded} body, e.g. {@code A%22ML=1&lt=%2B54.76397&lg=-0.18305}.
+ * Percent escapes and {@code '+'} for space are decoded in place, empty pairs are skipped. Escapes which would decode
+ * to a separator of the SMS layout are rejected, except {@code '='} in values.
+ */
+public final class AmlFormParser extends AmlBodyParser {
+
+    public AmlFormParser() {
+        this(new AmlMessageParser());
+    }
+
+    public AmlFormParser(AmlMessageParser parser) {
+        super(parser);
+    }
+
+    @Override
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity"})
+    int decode(byte[] body, int offset, int length) {
+        int end = offset + length;
+        int read = offset;
+        int write = offset;
+        while (read < end) {
+            int pairStart = read;
+            boolean inValue = false;
+            while (read < end && body[read] != '&') {
+                int decoded = body[read];
+                if (decoded == '%') {
+                    int high = read + 2 < end ? Character.digit(body[read + 1], 16) : -1;
+                    int low = read + 2 < end ? Character.digit(body[read + 2], 16) : -1;
+                    if (high < 0 || low < 0 || isSeparator(high << 4 | low, inValue)) {
+                        return ~(read - offset);
+                    }
+                    decoded = high << 4 | low;
+                    read += 3;
+                } else {
+                    if (decoded == ';') {
+                        return ~(read - offset);
+                    }
+                    inValue |= decoded == '=';
+                    decoded = decoded == '+' ? ' ' : decoded;
+                    read++;
+                }
+                body[write++] = (byte) decoded;
+            }
+            // the separator of a pair is written over its '&', the one of the last pair is not needed
+            if (read < end) {
+                if (read > pairStart) {
+                    body[write++] = ';';
+                }
+                read++;
+            }
+        }
+        return write - offset;
+    }
+}
@@ -0,0 +1,248 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.AmlMessageBuilder;
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.validation.DefaultValidator;
+import at.gridgears.aml.validation.Validator;
+
+import java.nio.ByteBuffer;
+import java.util.function.Consumer;
+
+/**
+ * Push parser for messages which arrive in chunks, e.g. the segments of a concatenated SMS or partial reads of a
+ * connection. Chunks are appended to a buffer of fixed size while a small state machine follows the attribute names
+ * across chunk boundaries and reads the value of the ml attribute. As soon as the number of characters received
+ * equals that value, the message is parsed and its result passed on, and any further characters start the next
+ * message.
+ * <p>
+ * A message that does not fit into the buffer is reported as {@link ParseError#MESSAGE_TOO_LONG}, one whose ml
+ * attribute is smaller than the characters already received as {@link ParseError#MESSAGE_LENGTH}. Both are
+ * discarded together with all further characters up to the {@code A"ML=} header of the next message, so the parser
+ * finds the start of the next message again.
+ * <p>
+ * The state of a parser is its buffer and a few counters, so one parser per in-flight message, e.g. per sender, is
+ * cheap. A parser is not thread-safe, the builder is reused for all messages and may be shared by parsers which are
+ * fed by the same thread.
+ */
+public final class AmlIncrementalParser<T> {
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int NAME_START = 0;
+    private static final int NAME_M = 1;
+    private static final int NAME_ML = 2;
+    private static final int LENGTH_VALUE = 3;
+    private static final int OTHER = 4;
+
+    private static final int UNKNOWN_LENGTH = -1;
+
+    private static final byte[] HEADER = {'A', '"', 'M', 'L', '='};
+
+    /**
+     * Value of {@link #headerMatched} while characters are buffered rather than discarded.
+     */
+    private static final int NOT_DISCARDING = -1;
+
+    private final AmlMessageParser parser;
+    private final AmlMessageBuilder<T> builder;
+    private final Validator<T> validator;
+    private final Consumer<? super ParseResult<T>> results;
+    private final Attributes attributes;
+    private final byte[] buffer;
+
+    private int length;
+    private int state;
+    private int expectedLength;
+    private int expectedLengthOffset;
+
+    /**
+     * The number of characters of the header matched while discarding after a failure.
+     */
+    private int headerMatched;
+
+    public AmlIncrementalParser(AmlMessageParser parser, AmlMessageBuilder<T> builder, Validator<T> validator, Consumer<? super ParseResult<T>> results) {
+        this(parser, builder, validator, results, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity the maximum length of a message
+     */
+    public AmlIncrementalParser(AmlMessageParser parser, AmlMessageBuilder<T> builder, Validator<T> validator, Consumer<? super ParseResult<T>> results, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+        }
+        this.parser = parser;
+        this.builder = builder;
+        this.validator = validator;
+        this.results = results;
+        this.attributes = parser.newAttributes();
+        this.buffer = new byte[capacity];
+        reset();
+    }
+
+    public static AmlIncrementalParser<AmlMessage> newAdvancedMobileLocationParser(Consumer<? super ParseResult<AmlMessage>> results) {
+        return new AmlIncrementalParser<>(new AmlMessageParser(), DefaultAmlMessageBuilder.newAdvancedMobileLocation(), DefaultValidator.INSTANCE, results);
+    }
+
+    /**
+     * Appends the ASCII encoded chunk in the given range of the array.
+     */
+    public void feed(byte[] chunk, int offset, int length) {
+        if (offset < 0 || length < 0 || offset > chunk.length - length) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", length " + length + ", array length " + chunk.length);
+        }
+        for (int i = offset; i < offset + length; i++) {
+            append(chunk[i]);
+        }
+    }
+
+    public void feed(byte[] chunk) {
+        feed(chunk, 0, chunk.length);
+    }
+
+    /**
+     * Appends the ASCII encoded chunk between position and limit of the buffer and advances its position to the limit.
+     */
+    public void feed(ByteBuffer chunk) {
+        while (chunk.hasRemaining()) {
+            append(chunk.get());
+        }
+    }
+
+    /**
+     * Appends the chunk, characters beyond ISO-8859-1 are not part of AML and truncated.
+     */
+    public void feed(CharSequence chunk) {
+        for (int i = 0; i < chunk.length(); i++) {
+            append((byte) chunk.charAt(i));
+        }
+    }
+
+    /**
+     * @return the number of characters received of the current, incomplete message
+     */
+    public int pendingLength() {
+        return length;
+    }
+
+    /**
+     * Discards the current, incomplete message, the next character starts a new message.
+     */
+    public void reset() {
+        headerMatched = NOT_DISCARDING;
+        length = 0;
+        state = NAME_START;
+        expectedLength = UNKNOWN_LENGTH;
+        expectedLengthOffset = -1;
+    }
+
+    private void append(byte character) {
+        if (headerMatched != NOT_DISCARDING) {
+            discard(character);
+            return;
+        }
+        buffer[length++] = character;
+        advance(character);
+
+        if (length == expectedLength) {
+            complete();
+        } else if (expectedLength != UNKNOWN_LENGTH && expectedLength < length && state != LENGTH_VALUE) {
+            fail(ParseResult.failure(ParseError.MESSAGE_LENGTH, AttributeName.LENGTH.getText(), expectedLengthOffset));
+            // a trailing ml value only ends with the first character of the next message
+            discard(character);
+        } else if (length == buffer.length) {
+            fail(ParseResult.failure(ParseError.MESSAGE_TOO_LONG, null, -1));
+        }
+    }
+
+    /**
+     * Follows the attribute names to find the value of ml, a later ml attribute replaces an earlier one.
+     */
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity"})
+    private void advance(byte character) {
+        if (character == ';') {
+            state = NAME_START;
+            return;
+        }
+        switch (state) {
+            case NAME_START:
+                state = character == 'm' ? NAME_M : OTHER;
+                break;
+            case NAME_M:
+                state = character == 'l' ? NAME_ML : OTHER;
+                break;
+            case NAME_ML:
+                if (character == '=') {
+                    state = LENGTH_VALUE;
+                    expectedLength = 0;
+                    expectedLengthOffset = length;
+                } else {
+                    state = OTHER;
+                }
+                break;
+            case LENGTH_VALUE:
+                if (character >= '0' && character <= '9') {
+                    // values beyond the capacity cannot be reached anyway, capping them avoids overflow
+                    expectedLength = Math.min(expectedLength * 10 + character - '0', buffer.length + 1);
+                } else {
+                    // the value ends, the parser reports the invalid character
+                    state = OTHER;
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Skips the character unless it completes the header of the next message, which is then buffered.
+     */
+    private void discard(byte character) {
+        if (character == HEADER[headerMatched]) {
+            headerMatched++;
+        } else {
+            headerMatched = character == HEADER[0] ? 1 : 0;
+        }
+        if (headerMatched == HEADER.length) {
+            headerMatched = NOT_DISCARDING;
+            for (byte headerCharacter : HEADER) {
+                append(headerCharacter);
+            }
+        }
+    }
+
+    private void complete() {
+        ParseResult<T> result = parser.tryParse(new ByteArrayCharSequence(buffer, 0, length), attributes, builder, validator);
+        reset();
+        results.accept(result);
+    }
+
+    private void fail(ParseResult<T> result) {
+        reset();
+        headerMatched = 0;
+        results.accept(result);
+    }
+}
@@ -0,0 +1,238 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Parses AML from a JSON body in the shape of EENA's AML over HTTPS, a flat object with the attributes as members,
+ * e.g. {@code {"A\"ML": 1, "lt": "+54.76397", "lg": -0.18305}}. Values are strings or numbers, members with
+ * {@code null} are treated as missing. Nested objects and arrays and booleans are rejected, as are strings with
+ * characters beyond ISO 8859-1 or which would decode to a separator of the SMS layout, except {@code '='} in values.
+ */
+public final class AmlJsonParser extends AmlBodyParser {
+    private static final byte[] NULL = {'n', 'u', 'l', 'l'};
+
+    public AmlJsonParser() {
+        this(new AmlMessageParser());
+    }
+
+    public AmlJsonParser(AmlMessageParser parser) {
+        super(parser);
+    }
+
+    @Override
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity"})
+    int decode(byte[] body, int offset, int length) {
+        Cursor cursor = new Cursor(body, offset, offset + length);
+        if (!cursor.skip('{')) {
+            return cursor.error();
+        }
+        boolean more = !cursor.skip('}');
+        while (more) {
+            int memberStart = cursor.write;
+            if (!cursor.string(false) || !cursor.skip(':')) {
+                return cursor.error();
+            }
+            cursor.put('=');
+            if (cursor.skip(NULL)) {
+                cursor.write = memberStart;
+            } else if (cursor.peek() == '"' ? cursor.string(true) : cursor.number()) {
+                cursor.put(';');
+            } else {
+                return cursor.error();
+            }
+            more = cursor.skip(',');
+            if (!more && !cursor.skip('}')) {
+                return cursor.error();
+            }
+        }
+        return cursor.atEnd() ? cursor.write - offset : cursor.error();
+    }
+
+    /**
+     * Reads and writes the same array, decoded members are always shorter than their JSON.
+     */
+    private static final class Cursor {
+        private final byte[] body;
+        private final int offset;
+        private final int end;
+        private int read;
+        private int write;
+
+        Cursor(byte[] body, int offset, int end) {
+            this.body = body;
+            this.offset = offset;
+            this.end = end;
+            this.read = offset;
+            this.write = offset;
+        }
+
+        int peek() {
+            skipWhitespace();
+            return read < end ? body[read] : -1;
+        }
+
+        boolean skip(char expected) {
+            if (peek() != expected) {
+                return false;
+            }
+            read++;
+            return true;
+        }
+
+        boolean skip(byte[] literal) {
+            skipWhitespace();
+            if (end - read < literal.length) {
+                return false;
+            }
+            for (int i = 0; i < literal.length; i++) {
+                if (body[read + i] != literal[i]) {
+                    return false;
+                }
+            }
+            read += literal.length;
+            return true;
+        }
+
+        void put(char character) {
+            body[write++] = (byte) character;
+        }
+
+        boolean atEnd() {
+            skipWhitespace();
+            return read == end;
+        }
+
+        int error() {
+            return ~(read - offset);
+        }
+
+        @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity"})
+        boolean string(boolean inValue) {
+            if (!skip('"')) {
+                return false;
+            }
+            while (read < end && body[read] != '"') {
+                int start = read;
+                int decoded = body[read];
+                if (decoded == '\\') {
+                    decoded = escape();
+                    if (decoded < 0) {
+                        return false;
+                    }
+                } else if ((decoded & 0xff) < ' ') {
+                    return false;
+                } else {
+                    read++;
+                }
+                if (isSeparator(decoded, inValue)) {
+                    read = start;
+                    return false;
+                }
+                body[write++] = (byte) decoded;
+            }
+            if (read == end) {
+                return false;
+            }
+            read++;
+            return true;
+        }
+
+        boolean number() {
+            int start = read;
+            while (read < end && isNumberCharacter(body[read])) {
+                body[write++] = body[read++];
+            }
+            return read > start;
+        }
+
+        /**
+         * @return the escaped character, which advances the read position, or -1 if the escape is invalid
+         */
+        @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity"})
+        private int escape() {
+            if (end - read < 2) {
+                return -1;
+            }
+            int escaped;
+            switch (body[read + 1]) {
+                case '"':
+                case '\\':
+                case '/':
+                    escaped = body[read + 1];
+                    break;
+                case 'b':
+                    escaped = '\b';
+                    break;
+                case 'f':
+                    escaped = '\f';
+                    break;
+                case 'n':
+                    escaped = '\n';
+                    break;
+                case 'r':
+                    escaped = '\r';
+                    break;
+                case 't':
+                    escaped = '\t';
+                    break;
+                case 'u':
+                    return unicodeEscape();
+                default:
+                    return -1;
+            }
+            read += 2;
+            return escaped;
+        }
+
+        private int unicodeEscape() {
+            if (end - read < 6) {
+                return -1;
+            }
+            int escaped = 0;
+            for (int i = 2; i < 6; i++) {
+                int digit = Character.digit(body[read + i], 16);
+                if (digit < 0) {
+                    return -1;
+                }
+                escaped = escaped << 4 | digit;
+            }
+            if (escaped > 0xff) {
+                return -1;
+            }
+            read += 6;
+            return escaped;
+        }
+
+        private void skipWhitespace() {
+            while (read < end && (body[read] == ' ' || body[read] == '\t' || body[read] == '\n' || body[read] == '\r')) {
+                read++;
+            }
+        }
+
+        private static boolean isNumberCharacter(byte character) {
+            return character >= '0' && character <= '9' || character == '-' || character == '+' || character == '.' || character == 'e' || character == 'E';
+        }
+    }
+}
@@ -25,79 +25,148 @@
 package at.gridgears.aml;
 
 import java.time.Instant;
+import java.util.Arrays;
 import java.util.Objects;
 
+/**
+ * A parsed AML message. Values are kept in primitive fields, numeric identifiers are packed into integers and a bitmask
+ * tracks which attributes are present, so a message is a single small object. The getters box and format the values
+ * on every call.
+ */
 public final class AmlMessage {
+    private static final int UNPACKED_IMSI = 0;
+    private static final int UNPACKED_IMEI = 1;
+    private static final int UNPACKED_MCC = 2;
+    private static final int UNPACKED_MNC = 3;
+
+    private final int present;
 
-    private final Integer version;
+    private final int version;
 
-    private final Double latitude;
+    private final double latitude;
 
-    private final Double longitude;
+    private final double longitude;
 
-    private final Double radiusMeters;
+    private final double radiusMeters;
 
-    private final String imsi;
+    private final long imsi;
 
-    private final String imei;
+    private final long imei;
 
-    private final Instant timeOfPositioning;
+    private final long epochSecond;
 
-    private final Integer levelOfConfidence;
+    private final int nanos;
+
+    private final int levelOfConfidence;
 
     private final PositioningMethod positionMethod;
 
-    private final String mcc;
+    /**
+     * MCC in the upper and MNC in the lower 16 bits.
+     */
+    private final int mccMnc;
 
-    private final String mnc;
+    private final int length;
 
-    private final Integer length;
+    /**
+     * Identifiers which are not purely numeric or too long to be packed, {@code null} if all could be packed.
+     */
+    private final String[] unpacked;
 
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity", "PMD.NPathComplexity"})
     public AmlMessage(Integer version, Double latitude, Double longitude, Double radiusMeters, String imsi, String imei, Instant timeOfPositioning, Integer levelOfConfidence, PositioningMethod positionMethod, String mcc, String mnc, Integer length) {
+        long packedImsi = DigitPacking.pack(imsi, DigitPacking.MAX_IDENTIFIER_DIGITS);
+        long packedImei = DigitPacking.pack(imei, DigitPacking.MAX_IDENTIFIER_DIGITS);
+        long packedMcc = DigitPacking.pack(mcc, DigitPacking.MAX_NETWORK_CODE_DIGITS);
+        long packedMnc = DigitPacking.pack(mnc, DigitPacking.MAX_NETWORK_CODE_DIGITS);
+
+        this.present = (version == null ? 0 : Presence.VERSION)
+                | (latitude == null ? 0 : Presence.LATITUDE)
+                | (longitude == null ? 0 : Presence.LONGITUDE)
+                | (radiusMeters == null ? 0 : Presence.RADIUS)
+                | (imsi == null ? 0 : Presence.IMSI)
+                | (imei == null ? 0 : Presence.IMEI)
+                | (timeOfPositioning == null ? 0 : Presence.TIME_OF_POSITIONING)
+                | (levelOfConfidence == null ? 0 : Presence.LEVEL_OF_CONFIDENCE)
+                | (mcc == null ? 0 : Presence.MCC)
+                | (mnc == null ? 0 : Presence.MNC)
+                | (length == null ? 0 : Presence.LENGTH);
+        this.version = version == null ? 0 : version;
+        this.latitude = latitude == null ? 0 : latitude;
+        this.longitude = longitude == null ? 0 : longitude;
+        this.radiusMeters = radiusMeters == null ? 0 : radiusMeters;
+        this.imsi = packedImsi;
+        this.imei = packedImei;
+        this.epochSecond = timeOfPositioning == null ? 0 : timeOfPositioning.getEpochSecond();
+        this.nanos = timeOfPositioning == null ? 0 : timeOfPositioning.getNano();
+        this.levelOfConfidence = levelOfConfidence == null ? 0 : levelOfConfidence;
+        this.positionMethod = positionMethod;
+        this.mccMnc = DigitPacking.packNetworkCodes(packedMcc, packedMnc);
+        this.length = length == null ? 0 : length;
+
+        if (packedImsi == DigitPacking.NOT_PACKABLE || packedImei == DigitPacking.NOT_PACKABLE || packedMcc == DigitPacking.NOT_PACKABLE || packedMnc == DigitPacking.NOT_PACKABLE) {
+            unpacked = new String[4];
+            unpacked[UNPACKED_IMSI] = packedImsi == DigitPacking.NOT_PACKABLE ? imsi : null;
+            unpacked[UNPACKED_IMEI] = packedImei == DigitPacking.NOT_PACKABLE ? imei : null;
+            unpacked[UNPACKED_MCC] = packedMcc == DigitPacking.NOT_PACKABLE ? mcc : null;
+            unpacked[UNPACKED_MNC] = packedMnc == DigitPacking.NOT_PACKABLE ? mnc : null;
+        } else {
+            unpacked = null;
+        }
+    }
+
+    /**
+     * Creates a message from values which are already packed, so identifiers can be restored without Strings.
+     *
+     * @param present {@link Presence} mask, the bit of the positioning method is ignored
+     */
+    AmlMessage(int present, int version, double latitude, double longitude, double radiusMeters, long imsi, long imei, long epochSecond, int levelOfConfidence, PositioningMethod positionMethod, int networkCodes, int length) {
+        this.present = present & ~Presence.POSITIONING_METHOD;
         this.version = version;
         this.latitude = latitude;
         this.longitude = longitude;
         this.radiusMeters = radiusMeters;
         this.imsi = imsi;
         this.imei = imei;
-        this.timeOfPositioning = timeOfPositioning;
+        this.epochSecond = epochSecond;
+        this.nanos = 0;
         this.levelOfConfidence = levelOfConfidence;
         this.positionMethod = positionMethod;
-        this.mcc = mcc;
-        this.mnc = mnc;
+        this.mccMnc = networkCodes;
         this.length = length;
+        this.unpacked = null;
     }
 
     public Integer getVersion() {
-        return version;
+        return isPresent(Presence.VERSION) ? Integer.valueOf(version) : null;
     }
 
     public Double getLatitude() {
-        return latitude;
+        return isPresent(Presence.LATITUDE) ? Double.valueOf(latitude) : null;
     }
 
     public Double getLongitude() {
-        return longitude;
+        return isPresent(Presence.LONGITUDE) ? Double.valueOf(longitude) : null;
     }
 
     public Double getRadiusMeters() {
-        return radiusMeters;
+        return isPresent(Presence.RADIUS) ? Double.valueOf(radiusMeters) : null;
     }
 
     public String getImsi() {
-        return imsi;
+        return isPresent(Presence.IMSI) ? unpack(imsi, UNPACKED_IMSI) : null;
     }
 
     public String getImei() {
-        return imei;
+        return isPresent(Presence.IMEI) ? unpack(imei, UNPACKED_IMEI) : null;
     }
 
     public Instant getTimeOfPositioning() {
-        return timeOfPositioning;
+        return isPresent(Presence.TIME_OF_POSITIONING) ? Instant.ofEpochSecond(epochSecond, nanos) : null;
     }
 
     public Integer getLevelOfConfidence() {
-        return levelOfConfidence;
+        return isPresent(Presence.LEVEL_OF_CONFIDENCE) ? Integer.valueOf(levelOfConfidence) : null;
     }
 
     public PositioningMethod getPositionMethod() {
@@ -105,18 +174,19 @@ public final class AmlMessage {
     }
 
     public String getMcc() {
-        return mcc;
+        return isPresent(Presence.MCC) ? unpack(DigitPacking.mcc(mccMnc), UNPACKED_MCC) : null;
     }
 
     public String getMnc() {
-        return mnc;
+        return isPresent(Presence.MNC) ? unpack(DigitPacking.mnc(mccMnc), UNPACKED_MNC) : null;
     }
 
     public Integer getLength() {
-        return length;
+        return isPresent(Presence.LENGTH) ? Integer.valueOf(length) : null;
     }
 
     @Override
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity", "PMD.NPathComplexity"})
     public boolean equals(Object o) {
         if (this == o) {
             return true;
@@ -124,41 +194,136 @@ public final class AmlMessage {
         if (o == null || getClass() != o.getClass()) {
             return false;
         }
+        // absent values are stored as zero, so comparing all fields is enough
         AmlMessage that = (AmlMessage) o;
-        return Objects.equals(version, that.version) &&
-                Objects.equals(latitude, that.latitude) &&
-                Objects.equals(longitude, that.longitude) &&
-                Objects.equals(radiusMeters, that.radiusMeters) &&
-                Objects.equals(imsi, that.imsi) &&
-                Objects.equals(imei, that.imei) &&
-                Objects.equals(timeOfPositioning, that.timeOfPositioning) &&
-                Objects.equals(levelOfConfidence, that.levelOfConfidence) &&
+        return present == that.present &&
+                version == that.version &&
+                Double.doubleToLongBits(latitude) == Double.doubleToLongBits(that.latitude) &&
+                Double.doubleToLongBits(longitude) == Double.doubleToLongBits(that.longitude) &&
+                Double.doubleToLongBits(radiusMeters) == Double.doubleToLongBits(that.radiusMeters) &&
+                imsi == that.imsi &&
+                imei == that.imei &&
+                epochSecond == that.epochSecond &&
+                nanos == that.nanos &&
+                levelOfConfidence == that.levelOfConfidence &&
                 positionMethod == that.positionMethod &&
-                Objects.equals(mcc, that.mcc) &&
-                Objects.equals(mnc, that.mnc) &&
-                Objects.equals(length, that.length);
+                mccMnc == that.mccMnc &&
+                length == that.length &&
+                Arrays.equals(unpacked, that.unpacked);
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(version, latitude, longitude, radiusMeters, imsi, imei, timeOfPositioning, levelOfConfidence, positionMethod, mcc, mnc, length);
+        int result = present;
+        result = 31 * result + version;
+        result = 31 * result + Double.hashCode(latitude);
+        result = 31 * result + Double.hashCode(longitude);
+        result = 31 * result + Double.hashCode(radiusMeters);
+        result = 31 * result + Long.hashCode(imsi);
+        result = 31 * result + Long.hashCode(imei);
+        result = 31 * result + Long.hashCode(epochSecond);
+        result = 31 * result + nanos;
+        result = 31 * result + levelOfConfidence;
+        result = 31 * result + Objects.hashCode(positionMethod);
+        result = 31 * result + mccMnc;
+        result = 31 * result + length;
+        result = 31 * result + Arrays.hashCode(unpacked);
+        return result;
     }
 
     @Override
     public String toString() {
         return "AmlMessage{" +
-                "version=" + version +
-                ", latitude=" + latitude +
-                ", longitude=" + longitude +
-                ", radiusMeters=" + radiusMeters +
-                ", imsi='" + imsi + '\'' +
-                ", imei='" + imei + '\'' +
-                ", timeOfPositioning=" + timeOfPositioning +
-                ", levelOfConfidence=" + levelOfConfidence +
+                "version=" + getVersion() +
+                ", latitude=" + getLatitude() +
+                ", longitude=" + getLongitude() +
+                ", radiusMeters=" + getRadiusMeters() +
+                ", imsi='" + getImsi() + '\'' +
+                ", imei='" + getImei() + '\'' +
+                ", timeOfPositioning=" + getTimeOfPositioning() +
+                ", levelOfConfidence=" + getLevelOfConfidence() +
                 ", positionMethod=" + positionMethod +
-                ", mcc='" + mcc + '\'' +
-                ", mnc='" + mnc + '\'' +
-                ", length=" + length +
+                ", mcc='" + getMcc() + '\'' +
+                ", mnc='" + getMnc() + '\'' +
+                ", length=" + getLength() +
                 '}';
     }
+
+    /**
+     * @return the {@link Presence} mask of the message
+     */
+    int present() {
+        return present;
+    }
+
+    int version() {
+        return version;
+    }
+
+    double latitude() {
+        return latitude;
+    }
+
+    double longitude() {
+        return longitude;
+    }
+
+    double radiusMeters() {
+        return radiusMeters;
+    }
+
+    /**
+     * @return the IMSI packed by {@link DigitPacking}, only valid if {@link #isPacked()}
+     */
+    long packedImsi() {
+        return imsi;
+    }
+
+    /**
+     * @return the IMEI packed by {@link DigitPacking}, only valid if {@link #isPacked()}
+     */
+    long packedImei() {
+        return imei;
+    }
+
+    long epochSecond() {
+        return epochSecond;
+    }
+
+    int nanos() {
+        return nanos;
+    }
+
+    int levelOfConfidence() {
+        return levelOfConfidence;
+    }
+
+    /**
+     * @return MCC and MNC packed by {@link DigitPacking#packNetworkCodes(long, long)}, only valid if {@link #isPacked()}
+     */
+    int networkCodes() {
+        return mccMnc;
+    }
+
+    int length() {
+        return length;
+    }
+
+    /**
+     * @return whether all identifiers are numeric and packed into their fields
+     */
+    boolean isPacked() {
+        return unpacked == null;
+    }
+
+    private boolean isPresent(int attribute) {
+        return (present & attribute) != 0;
+    }
+
+    private String unpack(long packed, int unpackedIndex) {
+        if (unpacked != null && unpacked[unpackedIndex] != null) {
+            return unpacked[unpackedIndex];
+        }
+        return DigitPacking.unpack(packed);
+    }
 }
@@ -0,0 +1,873 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.PrimitiveAmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlValidationException;
+import at.gridgears.aml.validation.Validator;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Column store for large numbers of messages. Every attribute is kept in its own primitive column, so messages are
+ * appended without creating objects and scans over single attributes run as tight loops over contiguous memory.
+ * Messages are appended through the builder returned by {@link #appender()} and queried through {@link #select()}.
+ * <p>
+ * Columns are either heap arrays which grow on demand or direct buffers of fixed capacity outside of the heap. The
+ * time of positioning is stored in whole seconds. A batch is not thread-safe.
+ */
+public final class AmlMessageBatch {
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    private static final int ROWS_PER_WORD = 64;
+
+    private static final byte NO_POSITIONING_METHOD = -1;
+
+    private static final PositioningMethod[] POSITIONING_METHODS = PositioningMethod.values();
+
+    // int columns
+    private static final int PRESENCE = 0;
+    private static final int VERSIONS = 1;
+    private static final int LEVELS_OF_CONFIDENCE = 2;
+    private static final int NETWORK_CODES = 3;
+    private static final int LENGTHS = 4;
+    private static final int INT_COLUMNS = 5;
+
+    // long columns
+    private static final int IMSIS = 0;
+    private static final int IMEIS = 1;
+    private static final int EPOCH_SECONDS = 2;
+    private static final int LONG_COLUMNS = 3;
+
+    // double columns
+    private static final int LATITUDES = 0;
+    private static final int LONGITUDES = 1;
+    private static final int RADII = 2;
+    private static final int DOUBLE_COLUMNS = 3;
+
+    private static final int UNPACKED_IMSI = 0;
+    private static final int UNPACKED_IMEI = 1;
+    private static final int UNPACKED_MCC = 2;
+    private static final int UNPACKED_MNC = 3;
+    private static final int UNPACKED_IDENTIFIERS = 4;
+
+    private Columns columns;
+
+    private int size;
+
+    /**
+     * Identifiers which cannot be packed into their column, indexed by row and allocated on first use as they are
+     * rarely needed. A row without such identifiers has no entry.
+     */
+    private String[][] unpacked;
+
+    private AmlMessageBatch(Columns columns) {
+        this.columns = columns;
+    }
+
+    public static AmlMessageBatch onHeap() {
+        return onHeap(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a batch backed by heap arrays which grow when the capacity is exceeded.
+     */
+    public static AmlMessageBatch onHeap(int initialCapacity) {
+        return new AmlMessageBatch(new HeapColumns(checkCapacity(initialCapacity)));
+    }
+
+    /**
+     * Creates a batch backed by direct buffers outside of the heap. Appending more than capacity messages fails.
+     */
+    public static AmlMessageBatch offHeap(int capacity) {
+        return new AmlMessageBatch(new DirectColumns(checkCapacity(capacity)));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return columns.capacity;
+    }
+
+    /**
+     * Removes all messages, keeping the allocated columns.
+     */
+    public void clear() {
+        if (unpacked != null) {
+            Arrays.fill(unpacked, 0, size, null);
+        }
+        size = 0;
+    }
+
+    /**
+     * Returns a builder which appends every built message as a new row and returns this batch. Values are written to
+     * the columns as they are set, so a message is only visible after {@link PrimitiveAmlMessageBuilder#build()}.
+     * As the parser does not call the builder for malformed messages, only valid ones are appended. To validate the
+     * appended messages, pass a validator created by {@link #validator(Validator)} to the parser.
+     */
+    public PrimitiveAmlMessageBuilder<AmlMessageBatch> appender() {
+        return new Appender();
+    }
+
+    /**
+     * Adapts a validator of messages for parsing into this batch: the last appended row is validated and removed
+     * again if it is rejected, so the batch only keeps valid messages.
+     */
+    public Validator<AmlMessageBatch> validator(Validator<? super AmlMessage> validator) {
+        return batch -> {
+            try {
+                validator.validate(get(size - 1));
+            } catch (AmlValidationException e) {
+                removeLast();
+                throw e;
+            }
+            return batch;
+        };
+    }
+
+    /**
+     * @return a selection of all rows, to be narrowed down by its filters
+     */
+    public Selection select() {
+        return new Selection();
+    }
+
+    /**
+     * Materializes a single row.
+     */
+    public AmlMessage get(int row) {
+        checkRow(row);
+        Columns columns = this.columns;
+        int present = columns.getInt(PRESENCE, row);
+        String[] identifiers = unpacked == null ? null : unpacked[row];
+        if (identifiers == null) {
+            // columns keep stale values of earlier rows for missing attributes, messages expect zero
+            int networkCodes = columns.getInt(NETWORK_CODES, row);
+            return new AmlMessage(present,
+                    has(present, Presence.VERSION) ? columns.getInt(VERSIONS, row) : 0,
+                    has(present, Presence.LATITUDE) ? columns.getDouble(LATITUDES, row) : 0,
+                    has(present, Presence.LONGITUDE) ? columns.getDouble(LONGITUDES, row) : 0,
+                    has(present, Presence.RADIUS) ? columns.getDouble(RADII, row) : 0,
+                    has(present, Presence.IMSI) ? columns.getLong(IMSIS, row) : 0,
+                    has(present, Presence.IMEI) ? columns.getLong(IMEIS, row) : 0,
+                    has(present, Presence.TIME_OF_POSITIONING) ? columns.getLong(EPOCH_SECONDS, row) : 0,
+                    has(present, Presence.LEVEL_OF_CONFIDENCE) ? columns.getInt(LEVELS_OF_CONFIDENCE, row) : 0,
+                    getPositionMethod(row),
+                    DigitPacking.packNetworkCodes(has(present, Presence.MCC) ? DigitPacking.mcc(networkCodes) : 0, has(present, Presence.MNC) ? DigitPacking.mnc(networkCodes) : 0),
+                    has(present, Presence.LENGTH) ? columns.getInt(LENGTHS, row) : 0);
+        }
+        Instant top = has(present, Presence.TIME_OF_POSITIONING) ? Instant.ofEpochSecond(columns.getLong(EPOCH_SECONDS, row)) : null;
+        return new AmlMessage(
+                has(present, Presence.VERSION) ? columns.getInt(VERSIONS, row) : null,
+                has(present, Presence.LATITUDE) ? columns.getDouble(LATITUDES, row) : null,
+                has(present, Presence.LONGITUDE) ? columns.getDouble(LONGITUDES, row) : null,
+                has(present, Presence.RADIUS) ? columns.getDouble(RADII, row) : null,
+                has(present, Presence.IMSI) ? identifier(identifiers, columns.getLong(IMSIS, row), UNPACKED_IMSI) : null,
+                has(present, Presence.IMEI) ? identifier(identifiers, columns.getLong(IMEIS, row), UNPACKED_IMEI) : null,
+                top,
+                has(present, Presence.LEVEL_OF_CONFIDENCE) ? columns.getInt(LEVELS_OF_CONFIDENCE, row) : null,
+                getPositionMethod(row),
+                has(present, Presence.MCC) ? identifier(identifiers, DigitPacking.mcc(columns.getInt(NETWORK_CODES, row)), UNPACKED_MCC) : null,
+                has(present, Presence.MNC) ? identifier(identifiers, DigitPacking.mnc(columns.getInt(NETWORK_CODES, row)), UNPACKED_MNC) : null,
+                has(present, Presence.LENGTH) ? columns.getInt(LENGTHS, row) : null);
+    }
+
+    /**
+     * @return the latitude or {@link Double#NaN} if the message has none
+     */
+    public double getLatitude(int row) {
+        checkRow(row);
+        return has(columns.getInt(PRESENCE, row), Presence.LATITUDE) ? columns.getDouble(LATITUDES, row) : Double.NaN;
+    }
+
+    /**
+     * @return the longitude or {@link Double#NaN} if the message has none
+     */
+    public double getLongitude(int row) {
+        checkRow(row);
+        return has(columns.getInt(PRESENCE, row), Presence.LONGITUDE) ? columns.getDouble(LONGITUDES, row) : Double.NaN;
+    }
+
+    /**
+     * @return the radius or {@link Double#NaN} if the message has none
+     */
+    public double getRadiusMeters(int row) {
+        checkRow(row);
+        return has(columns.getInt(PRESENCE, row), Presence.RADIUS) ? columns.getDouble(RADII, row) : Double.NaN;
+    }
+
+    /**
+     * @return the time of positioning in seconds since the epoch or {@link Long#MIN_VALUE} if the message has none
+     */
+    public long getEpochSecond(int row) {
+        checkRow(row);
+        return has(columns.getInt(PRESENCE, row), Presence.TIME_OF_POSITIONING) ? columns.getLong(EPOCH_SECONDS, row) : Long.MIN_VALUE;
+    }
+
+    public PositioningMethod getPositionMethod(int row) {
+        checkRow(row);
+        byte ordinal = columns.getPositioningMethod(row);
+        return ordinal == NO_POSITIONING_METHOD ? null : POSITIONING_METHODS[ordinal];
+    }
+
+    private void checkRow(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+    }
+
+    private void removeLast() {
+        size--;
+        if (unpacked != null) {
+            unpacked[size] = null;
+        }
+    }
+
+    private void ensureCapacity(int required) {
+        if (required > columns.capacity) {
+            columns = columns.grow(Math.max(required, columns.capacity * 2));
+            if (unpacked != null) {
+                unpacked = Arrays.copyOf(unpacked, columns.capacity);
+            }
+        }
+    }
+
+    private static String identifier(String[] identifiers, long packed, int unpackedIndex) {
+        return identifiers[unpackedIndex] != null ? identifiers[unpackedIndex] : DigitPacking.unpack(packed);
+    }
+
+    private static boolean has(int present, int attribute) {
+        return (present & attribute) != 0;
+    }
+
+    /**
+     * @return 1 if all of the attributes are present, otherwise 0, to be combined with other conditions by {@code &}
+     * instead of branching
+     */
+    private static long bit(int present, int attributes) {
+        return (present & attributes) == attributes ? 1L : 0L;
+    }
+
+    private static int checkCapacity(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+        }
+        return capacity;
+    }
+
+    /**
+     * Set of rows, narrowed down by filters which each scan a single column. Rows are tracked in a bitmap and every
+     * filter collects the matches of 64 rows in a register without branching before masking the bitmap, so the scans
+     * stay simple counted loops. Rows with a missing value never match a filter on that value.
+     */
+    public final class Selection {
+        private final long[] rows;
+
+        private final int selectionSize;
+
+        Selection() {
+            selectionSize = size;
+            rows = new long[(selectionSize + ROWS_PER_WORD - 1) / ROWS_PER_WORD];
+            for (int word = 0; word < rows.length; word++) {
+                int remaining = selectionSize - word * ROWS_PER_WORD;
+                rows[word] = remaining >= ROWS_PER_WORD ? -1L : (1L << remaining) - 1;
+            }
+        }
+
+        public Selection positionMethod(PositioningMethod positionMethod) {
+            byte ordinal = (byte) positionMethod.ordinal();
+            for (int word = 0; word < rows.length; word++) {
+                rows[word] &= columns.positionMethodMatches(word * ROWS_PER_WORD, end(word), ordinal);
+            }
+            return this;
+        }
+
+        /**
+         * Retains rows with a radius strictly less than the given one.
+         */
+        public Selection radiusBelow(double radiusMeters) {
+            for (int word = 0; word < rows.length; word++) {
+                rows[word] &= columns.radiusBelowMatches(word * ROWS_PER_WORD, end(word), radiusMeters);
+            }
+            return this;
+        }
+
+        /**
+         * Retains rows with a time of positioning in the interval from inclusive to exclusive.
+         */
+        public Selection timeOfPositioningBetween(Instant fromInclusive, Instant toExclusive) {
+            long from = fromInclusive.getNano() == 0 ? fromInclusive.getEpochSecond() : fromInclusive.getEpochSecond() + 1;
+            long to = toExclusive.getNano() == 0 ? toExclusive.getEpochSecond() : toExclusive.getEpochSecond() + 1;
+            for (int word = 0; word < rows.length; word++) {
+                rows[word] &= columns.timeOfPositioningMatches(word * ROWS_PER_WORD, end(word), from, to);
+            }
+            return this;
+        }
+
+        /**
+         * Retains rows with a position inside the given bounds, all of them inclusive.
+         */
+        public Selection within(double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+            for (int word = 0; word < rows.length; word++) {
+                rows[word] &= columns.withinMatches(word * ROWS_PER_WORD, end(word), minLatitude, maxLatitude, minLongitude, maxLongitude);
+            }
+            return this;
+        }
+
+        public int count() {
+            int count = 0;
+            for (long word : rows) {
+                count += Long.bitCount(word);
+            }
+            return count;
+        }
+
+        /**
+         * Calls the consumer with every selected row in ascending order.
+         */
+        public void forEach(IntConsumer consumer) {
+            for (int word = 0; word < rows.length; word++) {
+                long bits = rows[word];
+                while (bits != 0) {
+                    consumer.accept(word * ROWS_PER_WORD + Long.numberOfTrailingZeros(bits));
+                    bits &= bits - 1;
+                }
+            }
+        }
+
+        /**
+         * @return the selected rows in ascending order
+         */
+        public int[] toArray() {
+            int[] result = new int[count()];
+            int[] index = new int[1];
+            forEach(row -> result[index[0]++] = row);
+            return result;
+        }
+
+        private int end(int word) {
+            return Math.min((word + 1) * ROWS_PER_WORD, selectionSize);
+        }
+    }
+
+    /**
+     * Storage of the columns. Single values are accessed by column index, the scans of {@link Selection} are
+     * implemented by every storage over its own memory and return the matches of the rows from inclusive to exclusive
+     * as bits at the position of the row within its word of 64 rows.
+     */
+    private abstract static class Columns {
+        final int capacity;
+
+        Columns(int capacity) {
+            this.capacity = capacity;
+        }
+
+        abstract int getInt(int column, int row);
+
+        abstract void putInt(int column, int row, int value);
+
+        abstract long getLong(int column, int row);
+
+        abstract void putLong(int column, int row, long value);
+
+        abstract double getDouble(int column, int row);
+
+        abstract void putDouble(int column, int row, double value);
+
+        abstract byte getPositioningMethod(int row);
+
+        abstract void putPositioningMethod(int row, byte ordinal);
+
+        /**
+         * @return columns of the given capacity with the values of these columns
+         */
+        abstract Columns grow(int capacity);
+
+        abstract long positionMethodMatches(int from, int to, byte ordinal);
+
+        abstract long radiusBelowMatches(int from, int to, double radiusMeters);
+
+        abstract long timeOfPositioningMatches(int from, int to, long fromSecond, long toSecond);
+
+        abstract long withinMatches(int from, int to, double minLatitude, double maxLatitude, double minLongitude, double maxLongitude);
+    }
+
+    private static final class HeapColumns extends Columns {
+        private final int[][] ints;
+        private final long[][] longs;
+        private final double[][] doubles;
+        private final byte[] positioningMethods;
+
+        HeapColumns(int capacity) {
+            this(new int[INT_COLUMNS][capacity], new long[LONG_COLUMNS][capacity], new double[DOUBLE_COLUMNS][capacity], new byte[capacity]);
+        }
+
+        private HeapColumns(int[][] ints, long[][] longs, double[][] doubles, byte[] positioningMethods) {
+            super(positioningMethods.length);
+            this.ints = ints;
+            this.longs = longs;
+            this.doubles = doubles;
+            this.positioningMethods = positioningMethods;
+        }
+
+        @Override
+        int getInt(int column, int row) {
+            return ints[column][row];
+        }
+
+        @Override
+        void putInt(int column, int row, int value) {
+            ints[column][row] = value;
+        }
+
+        @Override
+        long getLong(int column, int row) {
+            return longs[column][row];
+        }
+
+        @Override
+        void putLong(int column, int row, long value) {
+            longs[column][row] = value;
+        }
+
+        @Override
+        double getDouble(int column, int row) {
+            return doubles[column][row];
+        }
+
+        @Override
+        void putDouble(int column, int row, double value) {
+            doubles[column][row] = value;
+        }
+
+        @Override
+        byte getPositioningMethod(int row) {
+            return positioningMethods[row];
+        }
+
+        @Override
+        void putPositioningMethod(int row, byte ordinal) {
+            positioningMethods[row] = ordinal;
+        }
+
+        @Override
+        Columns grow(int capacity) {
+            int[][] newInts = new int[INT_COLUMNS][];
+            for (int column = 0; column < INT_COLUMNS; column++) {
+                newInts[column] = Arrays.copyOf(ints[column], capacity);
+            }
+            long[][] newLongs = new long[LONG_COLUMNS][];
+            for (int column = 0; column < LONG_COLUMNS; column++) {
+                newLongs[column] = Arrays.copyOf(longs[column], capacity);
+            }
+            double[][] newDoubles = new double[DOUBLE_COLUMNS][];
+            for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+                newDoubles[column] = Arrays.copyOf(doubles[column], capacity);
+            }
+            return new HeapColumns(newInts, newLongs, newDoubles, Arrays.copyOf(positioningMethods, capacity));
+        }
+
+        @Override
+        long positionMethodMatches(int from, int to, byte ordinal) {
+            byte[] methods = positioningMethods;
+            long matches = 0;
+            for (int row = from; row < to; row++) {
+                matches |= (methods[row] == ordinal ? 1L : 0L) << row;
+            }
+            return matches;
+        }
+
+        @Override
+        long radiusBelowMatches(int from, int to, double radiusMeters) {
+            int[] presence = ints[PRESENCE];
+            double[] radii = doubles[RADII];
+            long matches = 0;
+            for (int row = from; row < to; row++) {
+                matches |= (bit(presence[row], Presence.RADIUS) & (radii[row] < radiusMeters ? 1L : 0L)) << row;
+            }
+            return matches;
+        }
+
+        @Override
+        long timeOfPositioningMatches(int from, int to, long fromSecond, long toSecond) {
+            int[] presence = ints[PRESENCE];
+            long[] epochSeconds = longs[EPOCH_SECONDS];
+            long matches = 0;
+            for (int row = from; row < to; row++) {
+                long epochSecond = epochSeconds[row];
+                long inside = (epochSecond >= fromSecond ? 1L : 0L) & (epochSecond < toSecond ? 1L : 0L);
+                matches |= (bit(presence[row], Presence.TIME_OF_POSITIONING) & inside) << row;
+            }
+            return matches;
+        }
+
+        @Override
+        long withinMatches(int from, int to, double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+            int located = Presence.LATITUDE | Presence.LONGITUDE;
+            int[] presence = ints[PRESENCE];
+            double[] latitudes = doubles[LATITUDES];
+            double[] longitudes = doubles[LONGITUDES];
+            long matches = 0;
+            for (int row = from; row < to; row++) {
+                double latitude = latitudes[row];
+                double longitude = longitudes[row];
+                long inside = (latitude >= minLatitude ? 1L : 0L) & (latitude <= maxLatitude ? 1L : 0L) & (longitude >= minLongitude ? 1L : 0L) & (longitude <= maxLongitude ? 1L : 0L);
+                matches |= (bit(presence[row], located) & inside) << row;
+            }
+            return matches;
+        }
+    }
+
+    private static final class DirectColumns extends Columns {
+        private final IntBuffer[] ints = new IntBuffer[INT_COLUMNS];
+        private final LongBuffer[] longs = new LongBuffer[LONG_COLUMNS];
+        private final DoubleBuffer[] doubles = new DoubleBuffer[DOUBLE_COLUMNS];
+        private final ByteBuffer positioningMethods;
+
+        DirectColumns(int capacity) {
+            super(capacity);
+            for (int column = 0; column < INT_COLUMNS; column++) {
+                ints[column] = bytes(capacity * Integer.BYTES).asIntBuffer();
+            }
+            for (int column = 0; column < LONG_COLUMNS; column++) {
+                longs[column] = bytes(capacity * Long.BYTES).asLongBuffer();
+            }
+            for (int column = 0; column < DOUBLE_COLUMNS; column++) {
+                doubles[column] = bytes(capacity * Double.BYTES).asDoubleBuffer();
+            }
+            positioningMethods = bytes(capacity);
+        }
+
+        @Override
+        int getInt(int column, int row) {
+            return ints[column].get(row);
+        }
+
+        @Override
+        void putInt(int column, int row, int value) {
+            ints[column].put(row, value);
+        }
+
+        @Override
+        long getLong(int column, int row) {
+            return longs[column].get(row);
+        }
+
+        @Override
+        void putLong(int column, int row, long value) {
+            longs[column].put(row, value);
+        }
+
+        @Override
+        double getDouble(int column, int row) {
+            return doubles[column].get(row);
+        }
+
+        @Override
+        void putDouble(int column, int row, double value) {
+            doubles[column].put(row, value);
+        }
+
+        @Override
+        byte getPositioningMethod(int row) {
+            return positioningMethods.get(row);
+        }
+
+        @Override
+        void putPositioningMethod(int row, byte ordinal) {
+            positioningMethods.put(row, ordinal);
+        }
+
+        @Override
+        Columns grow(int capacity) {
+            throw new IllegalStateException("off-heap batch is full at " + this.capacity + " messages");
+        }
+
+        @Override
+        long positionMethodMatches(int from, int to, byte ordinal) {
+            ByteBuffer methods = positioningMethods;
+            long matches = 0;
+            for (int row = from; row < to; row++) {
+                matches |= (methods.get(row) == ordinal ? 1L : 0L) << row;
+            }
+            return matches;
+        }
+
+        @Override
+        long radiusBelowMatches(int from, int to, double radiusMeters) {
+            IntBuffer presence = ints[PRESENCE];
+            DoubleBuffer radii = doubles[RADII];
+            long matches = 0;
+            for (int row = from; row < to; row++) {
+                matches |= (bit(presence.get(row), Presence.RADIUS) & (radii.get(row) < radiusMeters ? 1L : 0L)) << row;
+            }
+            return matches;
+        }
+
+        @Override
+        long timeOfPositioningMatches(int from, int to, long fromSecond, long toSecond) {
+            IntBuffer presence = ints[PRESENCE];
+            LongBuffer epochSeconds = longs[EPOCH_SECONDS];
+            long matches = 0;
+            for (int row = from; row < to; row++) {
+                long epochSecond = epochSeconds.get(row);
+                long inside = (epochSecond >= fromSecond ? 1L : 0L) & (epochSecond < toSecond ? 1L : 0L);
+                matches |= (bit(presence.get(row), Presence.TIME_OF_POSITIONING) & inside) << row;
+            }
+            return matches;
+        }
+
+        @Override
+        long withinMatches(int from, int to, double minLatitude, double maxLatitude, double minLongitude, double maxLongitude) {
+            int located = Presence.LATITUDE | Presence.LONGITUDE;
+            IntBuffer presence = ints[PRESENCE];
+            DoubleBuffer latitudes = doubles[LATITUDES];
+            DoubleBuffer longitudes = doubles[LONGITUDES];
+            long matches = 0;
+            for (int row = from; row < to; row++) {
+                double latitude = latitudes.get(row);
+                double longitude = longitudes.get(row);
+                long inside = (latitude >= minLatitude ? 1L : 0L) & (latitude <= maxLatitude ? 1L : 0L) & (longitude >= minLongitude ? 1L : 0L) & (longitude <= maxLongitude ? 1L : 0L);
+                matches |= (bit(presence.get(row), located) & inside) << row;
+            }
+            return matches;
+        }
+
+        private static ByteBuffer bytes(int capacity) {
+            return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+        }
+    }
+
+    private final class Appender implements PrimitiveAmlMessageBuilder<AmlMessageBatch> {
+        private boolean open;
+
+        @Override
+        public Appender version(Integer version) {
+            return version == null ? absent(Presence.VERSION) : version(version.intValue());
+        }
+
+        @Override
+        public Appender version(int version) {
+            int row = row(Presence.VERSION);
+            columns.putInt(VERSIONS, row, version);
+            return this;
+        }
+
+        @Override
+        public Appender latitude(Double latitude) {
+            return latitude == null ? absent(Presence.LATITUDE) : latitude(latitude.doubleValue());
+        }
+
+        @Override
+        public Appender latitude(double latitude) {
+            int row = row(Presence.LATITUDE);
+            columns.putDouble(LATITUDES, row, latitude);
+            return this;
+        }
+
+        @Override
+        public Appender longitude(Double longitude) {
+            return longitude == null ? absent(Presence.LONGITUDE) : longitude(longitude.doubleValue());
+        }
+
+        @Override
+        public Appender longitude(double longitude) {
+            int row = row(Presence.LONGITUDE);
+            columns.putDouble(LONGITUDES, row, longitude);
+            return this;
+        }
+
+        @Override
+        public Appender radiusMeters(Double radiusMeters) {
+            return radiusMeters == null ? absent(Presence.RADIUS) : radiusMeters(radiusMeters.doubleValue());
+        }
+
+        @Override
+        public Appender radiusMeters(double radiusMeters) {
+            int row = row(Presence.RADIUS);
+            columns.putDouble(RADII, row, radiusMeters);
+            return this;
+        }
+
+        @Override
+        public Appender imsi(String imsi) {
+            if (imsi == null) {
+                return absent(Presence.IMSI);
+            }
+            int row = row(Presence.IMSI);
+            columns.putLong(IMSIS, row, pack(imsi, DigitPacking.MAX_IDENTIFIER_DIGITS, UNPACKED_IMSI));
+            return this;
+        }
+
+        @Override
+        public Appender imei(String imei) {
+            if (imei == null) {
+                return absent(Presence.IMEI);
+            }
+            int row = row(Presence.IMEI);
+            columns.putLong(IMEIS, row, pack(imei, DigitPacking.MAX_IDENTIFIER_DIGITS, UNPACKED_IMEI));
+            return this;
+        }
+
+        @Override
+        public Appender timeOfPositioning(Instant timeOfPositioning) {
+            return timeOfPositioning == null ? absent(Presence.TIME_OF_POSITIONING) : timeOfPositioning(timeOfPositioning.getEpochSecond());
+        }
+
+        @Override
+        public Appender timeOfPositioning(long epochSecond) {
+            int row = row(Presence.TIME_OF_POSITIONING);
+            columns.putLong(EPOCH_SECONDS, row, epochSecond);
+            return this;
+        }
+
+        @Override
+        public Appender levelOfConfidence(Integer levelOfConfidence) {
+            return levelOfConfidence == null ? absent(Presence.LEVEL_OF_CONFIDENCE) : levelOfConfidence(levelOfConfidence.intValue());
+        }
+
+        @Override
+        public Appender levelOfConfidence(int levelOfConfidence) {
+            int row = row(Presence.LEVEL_OF_CONFIDENCE);
+            columns.putInt(LEVELS_OF_CONFIDENCE, row, levelOfConfidence);
+            return this;
+        }
+
+        @Override
+        public Appender positionMethod(PositioningMethod positionMethod) {
+            if (positionMethod == null) {
+                int row = row(0);
+                columns.putPositioningMethod(row, NO_POSITIONING_METHOD);
+                return absent(Presence.POSITIONING_METHOD);
+            }
+            int row = row(Presence.POSITIONING_METHOD);
+            columns.putPositioningMethod(row, (byte) positionMethod.ordinal());
+            return this;
+        }
+
+        @Override
+        public Appender mcc(String mcc) {
+            if (mcc == null) {
+                return absent(Presence.MCC);
+            }
+            int row = row(Presence.MCC);
+            long packed = pack(mcc, DigitPacking.MAX_NETWORK_CODE_DIGITS, UNPACKED_MCC);
+            columns.putInt(NETWORK_CODES, row, DigitPacking.packNetworkCodes(packed, DigitPacking.mnc(columns.getInt(NETWORK_CODES, row))));
+            return this;
+        }
+
+        @Override
+        public Appender mnc(String mnc) {
+            if (mnc == null) {
+                return absent(Presence.MNC);
+            }
+            int row = row(Presence.MNC);
+            long packed = pack(mnc, DigitPacking.MAX_NETWORK_CODE_DIGITS, UNPACKED_MNC);
+            columns.putInt(NETWORK_CODES, row, DigitPacking.packNetworkCodes(DigitPacking.mcc(columns.getInt(NETWORK_CODES, row)), packed));
+            return this;
+        }
+
+        @Override
+        public Appender length(Integer length) {
+            return length == null ? absent(Presence.LENGTH) : length(length.intValue());
+        }
+
+        @Override
+        public Appender length(int length) {
+            int row = row(Presence.LENGTH);
+            columns.putInt(LENGTHS, row, length);
+            return this;
+        }
+
+        @Override
+        public Appender reset() {
+            if (open) {
+                open = false;
+                if (unpacked != null) {
+                    unpacked[size] = null;
+                }
+            }
+            return this;
+        }
+
+        @Override
+        public AmlMessageBatch build() {
+            row(0);
+            size++;
+            open = false;
+            return AmlMessageBatch.this;
+        }
+
+        /**
+         * Opens the next row on the first value of a message and marks the attribute as present. Opening a row can
+         * replace the columns, so it has to be called before a column is accessed.
+         *
+         * @return the index of the row being appended
+         */
+        private int row(int attribute) {
+            if (!open) {
+                ensureCapacity(size + 1);
+                columns.putInt(PRESENCE, size, 0);
+                columns.putPositioningMethod(size, NO_POSITIONING_METHOD);
+                columns.putInt(NETWORK_CODES, size, 0);
+                if (unpacked != null) {
+                    unpacked[size] = null;
+                }
+                open = true;
+            }
+            columns.putInt(PRESENCE, size, columns.getInt(PRESENCE, size) | attribute);
+            return size;
+        }
+
+        private Appender absent(int attribute) {
+            int row = row(0);
+            columns.putInt(PRESENCE, row, columns.getInt(PRESENCE, row) & ~attribute);
+            return this;
+        }
+
+        private long pack(String value, int maxDigits, int unpackedIndex) {
+            long packed = DigitPacking.pack(value, maxDigits);
+            if (packed == DigitPacking.NOT_PACKABLE) {
+                if (unpacked == null) {
+                    unpacked = new String[columns.capacity][];
+                }
+                if (unpacked[size] == null) {
+                    unpacked[size] = new String[UNPACKED_IDENTIFIERS];
+                }
+                unpacked[size][unpackedIndex] = value;
+            }
+            return packed;
+        }
+    }
+}
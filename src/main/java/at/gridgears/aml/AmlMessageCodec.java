@@ -0,0 +1,193 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import java.nio.BufferOverflowException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Fixed-layout binary format for {@link AmlMessage}. Every record takes {@link #RECORD_SIZE} bytes in big-endian
+ * order, independent of the order set on the buffer:
+ * <pre>
+ *  0  byte    format version, currently {@link #FORMAT_VERSION}
+ *  1  byte    interface version (unsigned)
+ *  2  short   presence mask of the attributes
+ *  4  byte    level of confidence (unsigned)
+ *  5  byte    positioning method ordinal
+ *  6  short   message length (unsigned)
+ *  8  double  latitude
+ * 16  double  longitude
+ * 24  double  radius in meters
+ * 32  long    time of positioning in seconds since the epoch
+ * 40  long    IMSI
+ * 48  long    IMEI
+ * 56  int     MCC and MNC
+ * </pre>
+ * Missing attributes are stored as zero. Identifiers are stored as their digits behind a leading 1, which keeps
+ * leading zeros. Messages with values outside of these widths, non-numeric identifiers or a time of positioning with
+ * fractional seconds cannot be encoded. Encoding and decoding into an {@link AmlMessageRecord} do not allocate.
+ */
+public final class AmlMessageCodec {
+    public static final byte FORMAT_VERSION = 1;
+
+    public static final int RECORD_SIZE = 60;
+
+    static final int FORMAT_VERSION_OFFSET = 0;
+    static final int VERSION_OFFSET = 1;
+    static final int PRESENCE_OFFSET = 2;
+    static final int LEVEL_OF_CONFIDENCE_OFFSET = 4;
+    static final int POSITIONING_METHOD_OFFSET = 5;
+    static final int LENGTH_OFFSET = 6;
+    static final int LATITUDE_OFFSET = 8;
+    static final int LONGITUDE_OFFSET = 16;
+    static final int RADIUS_OFFSET = 24;
+    static final int TIME_OF_POSITIONING_OFFSET = 32;
+    static final int IMSI_OFFSET = 40;
+    static final int IMEI_OFFSET = 48;
+    static final int NETWORK_CODES_OFFSET = 56;
+
+    private static final int UNSIGNED_BYTE_MAX = 0xff;
+
+    private static final int UNSIGNED_SHORT_MAX = 0xffff;
+
+    private AmlMessageCodec() {
+    }
+
+    /**
+     * Writes the message at the position of the buffer and advances the position by {@link #RECORD_SIZE}.
+     *
+     * @throws IllegalArgumentException if the message cannot be encoded
+     * @throws BufferOverflowException  if the remaining space is too small
+     */
+    public static void encode(AmlMessage message, ByteBuffer target) {
+        if (target.remaining() < RECORD_SIZE) {
+            throw new BufferOverflowException();
+        }
+        encode(message, target, target.position());
+        target.position(target.position() + RECORD_SIZE);
+    }
+
+    /**
+     * Writes the message at the given offset without changing the position of the buffer.
+     *
+     * @throws IllegalArgumentException  if the message cannot be encoded
+     * @throws IndexOutOfBoundsException if the record does not fit into the buffer
+     */
+    public static void encode(AmlMessage message, ByteBuffer target, int offset) {
+        checkEncodable(message);
+        if (offset < 0 || offset > target.limit() - RECORD_SIZE) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", record size " + RECORD_SIZE + ", limit " + target.limit());
+        }
+        PositioningMethod positionMethod = message.getPositionMethod();
+        int present = message.present() | (positionMethod == null ? 0 : Presence.POSITIONING_METHOD);
+
+        target.put(offset + FORMAT_VERSION_OFFSET, FORMAT_VERSION);
+        target.put(offset + VERSION_OFFSET, (byte) message.version());
+        putShort(target, offset + PRESENCE_OFFSET, (short) present);
+        target.put(offset + LEVEL_OF_CONFIDENCE_OFFSET, (byte) message.levelOfConfidence());
+        target.put(offset + POSITIONING_METHOD_OFFSET, (byte) (positionMethod == null ? 0 : positionMethod.ordinal()));
+        putShort(target, offset + LENGTH_OFFSET, (short) message.length());
+        putLong(target, offset + LATITUDE_OFFSET, Double.doubleToRawLongBits(message.latitude()));
+        putLong(target, offset + LONGITUDE_OFFSET, Double.doubleToRawLongBits(message.longitude()));
+        putLong(target, offset + RADIUS_OFFSET, Double.doubleToRawLongBits(message.radiusMeters()));
+        putLong(target, offset + TIME_OF_POSITIONING_OFFSET, message.epochSecond());
+        putLong(target, offset + IMSI_OFFSET, message.packedImsi());
+        putLong(target, offset + IMEI_OFFSET, message.packedImei());
+        putInt(target, offset + NETWORK_CODES_OFFSET, message.networkCodes());
+    }
+
+    /**
+     * Reads the record at the position of the buffer and advances the position by {@link #RECORD_SIZE}.
+     *
+     * @throws IllegalArgumentException if the record has an unknown format version
+     * @throws BufferUnderflowException if the remaining bytes are too few
+     */
+    public static AmlMessage decode(ByteBuffer source) {
+        if (source.remaining() < RECORD_SIZE) {
+            throw new BufferUnderflowException();
+        }
+        AmlMessage message = decode(source, source.position());
+        source.position(source.position() + RECORD_SIZE);
+        return message;
+    }
+
+    /**
+     * Reads the record at the given offset without changing the position of the buffer.
+     *
+     * @throws IllegalArgumentException  if the record has an unknown format version
+     * @throws IndexOutOfBoundsException if the record exceeds the buffer
+     */
+    public static AmlMessage decode(ByteBuffer source, int offset) {
+        return new AmlMessageRecord().wrap(source, offset).toAmlMessage();
+    }
+
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity", "PMD.NPathComplexity"})
+    private static void checkEncodable(AmlMessage message) {
+        if (!message.isPacked()) {
+            throw new IllegalArgumentException("identifiers must be numeric: " + message);
+        }
+        if (message.version() < 0 || message.version() > UNSIGNED_BYTE_MAX) {
+            throw new IllegalArgumentException("version out of range: " + message.version());
+        }
+        if (message.levelOfConfidence() < 0 || message.levelOfConfidence() > UNSIGNED_BYTE_MAX) {
+            throw new IllegalArgumentException("level of confidence out of range: " + message.levelOfConfidence());
+        }
+        if (message.length() < 0 || message.length() > UNSIGNED_SHORT_MAX) {
+            throw new IllegalArgumentException("length out of range: " + message.length());
+        }
+        if (message.nanos() != 0) {
+            throw new IllegalArgumentException("time of positioning has fractional seconds: " + message.getTimeOfPositioning());
+        }
+    }
+
+    static short getShort(ByteBuffer buffer, int index) {
+        short value = buffer.getShort(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Short.reverseBytes(value);
+    }
+
+    static int getInt(ByteBuffer buffer, int index) {
+        int value = buffer.getInt(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value);
+    }
+
+    static long getLong(ByteBuffer buffer, int index) {
+        long value = buffer.getLong(index);
+        return buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value);
+    }
+
+    private static void putShort(ByteBuffer buffer, int index, short value) {
+        buffer.putShort(index, buffer.order() == ByteOrder.BIG_ENDIAN ? value : Short.reverseBytes(value));
+    }
+
+    private static void putInt(ByteBuffer buffer, int index, int value) {
+        buffer.putInt(index, buffer.order() == ByteOrder.BIG_ENDIAN ? value : Integer.reverseBytes(value));
+    }
+
+    private static void putLong(ByteBuffer buffer, int index, long value) {
+        buffer.putLong(index, buffer.order() == ByteOrder.BIG_ENDIAN ? value : Long.reverseBytes(value));
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Detects retransmissions of AML messages, e.g. an SMS delivered twice by the carrier or a location sent over SMS
+ * and HTTPS, so they can be dropped before they are parsed or processed again.
+ * <p>
+ * A message is remembered by a 64 bit hash, either of its raw text or of IMSI, IMEI and time of positioning, for the
+ * given time to live, counted from its first sighting. The memory is allocated up front: the remembered hashes are
+ * kept in primitive arrays split into stripes which are locked independently, each stripe is divided into buckets of
+ * a few entries. A full bucket evicts its oldest entry, so the number of remembered messages never exceeds the
+ * capacity. Two different messages with the same hash are taken for duplicates, which is negligibly rare with 64 bit
+ * hashes.
+ * <p>
+ * A deduplicator is safe for concurrent use.
+ */
+public final class AmlMessageDeduplicator {
+    private static final int WAYS = 8;
+
+    private static final int MAX_STRIPES = 64;
+
+    private static final long EMPTY = 0;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final Stripe[] stripes;
+
+    private final int bucketMask;
+
+    private final long timeToLiveNanos;
+
+    private final LongSupplier clock;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * @param capacity   the number of messages to remember, rounded up to a power of two
+     * @param timeToLive how long a message is remembered after its first sighting
+     */
+    public AmlMessageDeduplicator(int capacity, Duration timeToLive) {
+        this(capacity, timeToLive, System::nanoTime);
+    }
+
+    AmlMessageDeduplicator(int capacity, Duration timeToLive, LongSupplier clock) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+        }
+        if (timeToLive.isNegative() || timeToLive.isZero()) {
+            throw new IllegalArgumentException("time to live must be positive but was " + timeToLive);
+        }
+        int entries = Math.max(WAYS, Integer.highestOneBit(Math.min(capacity, 1 << 30) * 2 - 1));
+        int stripeCount = Math.min(MAX_STRIPES, entries / WAYS);
+        int bucketsPerStripe = entries / WAYS / stripeCount;
+
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(bucketsPerStripe * WAYS);
+        }
+        this.bucketMask = bucketsPerStripe - 1;
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.clock = clock;
+    }
+
+    /**
+     * Remembers the raw message.
+     *
+     * @return whether the same raw message has been seen within the time to live
+     */
+    public boolean isDuplicate(CharSequence message) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < message.length(); i++) {
+            hash = (hash ^ message.charAt(i)) * FNV_PRIME;
+        }
+        return isDuplicate(hash);
+    }
+
+    /**
+     * Remembers the ASCII encoded raw message in the given range of the array, a duplicate of the same message passed
+     * as {@link CharSequence}.
+     */
+    public boolean isDuplicate(byte[] message, int offset, int length) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = offset; i < offset + length; i++) {
+            hash = (hash ^ (message[i] & 0xFF)) * FNV_PRIME;
+        }
+        return isDuplicate(hash);
+    }
+
+    /**
+     * Remembers IMSI, IMEI and time of positioning of the message, which identify a location independent of the
+     * channel it was sent over. A message without time of positioning cannot be told apart from a newer location of
+     * the same device, so it is never taken for a duplicate and not remembered.
+     *
+     * @return whether a message with the same IMSI, IMEI and time of positioning has been seen within the time to live
+     */
+    public boolean isDuplicate(AmlMessage message) {
+        int present = message.present();
+        if ((present & Presence.TIME_OF_POSITIONING) == 0) {
+            misses.increment();
+            return false;
+        }
+        long imsi = message.isPacked() ? message.packedImsi() : String.valueOf(message.getImsi()).hashCode();
+        long imei = message.isPacked() ? message.packedImei() : String.valueOf(message.getImei()).hashCode();
+        long hash = FNV_OFFSET_BASIS;
+        // a missing identifier differs from every value, including the text "null" of an unpacked one
+        hash = (hash ^ (present & (Presence.IMSI | Presence.IMEI))) * FNV_PRIME;
+        hash = (hash ^ imsi) * FNV_PRIME;
+        hash = (hash ^ imei) * FNV_PRIME;
+        hash = (hash ^ message.epochSecond()) * FNV_PRIME;
+        hash = (hash ^ message.nanos()) * FNV_PRIME;
+        return isDuplicate(hash);
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return the maximum number of remembered messages
+     */
+    public int getCapacity() {
+        return stripes.length * stripes[0].keys.length;
+    }
+
+    private boolean isDuplicate(long hash) {
+        long key = mix(hash);
+        if (key == EMPTY) {
+            key = 1;
+        }
+        // the low bits select the stripe, the high bits the bucket within it
+        Stripe stripe = stripes[(int) key & stripes.length - 1];
+        int bucket = ((int) (key >>> 32) & bucketMask) * WAYS;
+
+        boolean duplicate = stripe.putIfAbsent(key, bucket, clock.getAsLong(), timeToLiveNanos);
+        if (duplicate) {
+            hits.increment();
+        } else {
+            misses.increment();
+        }
+        return duplicate;
+    }
+
+    /**
+     * Finalizer of MurmurHash3, spreads the bits of the FNV hash over stripe and bucket index.
+     */
+    private static long mix(long hash) {
+        long mixed = (hash ^ hash >>> 33) * 0xff51afd7ed558ccdL;
+        mixed = (mixed ^ mixed >>> 33) * 0xc4ceb9fe1a85ec53L;
+        return mixed ^ mixed >>> 33;
+    }
+
+    private static final class Stripe {
+        private final long[] keys;
+
+        /**
+         * {@link System#nanoTime()} at which the entry expires, compared by difference to be safe against overflow.
+         */
+        private final long[] expiries;
+
+        private Stripe(int entries) {
+            this.keys = new long[entries];
+            this.expiries = new long[entries];
+        }
+
+        /**
+         * @return whether the key is contained and not expired, otherwise it is inserted
+         */
+        synchronized boolean putIfAbsent(long key, int bucket, long now, long timeToLiveNanos) {
+            int victim = bucket;
+            for (int i = bucket; i < bucket + WAYS; i++) {
+                boolean expired = keys[i] == EMPTY || expiries[i] - now <= 0;
+                if (keys[i] == key && !expired) {
+                    return true;
+                }
+                if (expired) {
+                    victim = i;
+                } else if (keys[victim] != EMPTY && expiries[victim] - now > 0 && expiries[i] - expiries[victim] < 0) {
+                    victim = i;
+                }
+            }
+            keys[victim] = key;
+            expiries[victim] = now + timeToLiveNanos;
+            return false;
+        }
+    }
+}
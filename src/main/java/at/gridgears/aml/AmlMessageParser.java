@@ -26,102 +26,595 @@ package at.gridgears.aml;
 
 import at.gridgears.aml.builder.AmlMessageBuilder;
 import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.builder.PrimitiveAmlMessageBuilder;
+import at.gridgears.aml.builder.SelectiveAmlMessageBuilder;
 import at.gridgears.aml.exceptions.AmlParseException;
 import at.gridgears.aml.exceptions.AmlValidationException;
 import at.gridgears.aml.validation.DefaultValidator;
 import at.gridgears.aml.validation.Validator;
 
+import java.nio.ByteBuffer;
 import java.time.Instant;
-import java.util.Objects;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 public class AmlMessageParser {
-    public <T> T parse(String message, AmlMessageBuilder<T> builder) throws AmlParseException, AmlValidationException {
-        Attributes attributes = Attributes.parse(message);
-
-        checkMessageLength(message, attributes);
-        checkAttributes(attributes);
-        return builder.version(getHeaderValue(attributes))
-                .latitude(getLatitude(attributes))
-                .longitude(getLongitude(attributes))
-                .radiusMeters(getRadius(attributes))
-                .imei(getImei(attributes))
-                .imsi(getImsi(attributes))
-                .levelOfConfidence(getLoc(attributes))
-                .mcc(getMcc(attributes))
-                .mnc(getMnc(attributes))
-                .timeOfPositioning(getTop(attributes))
-                .positionMethod(getPositioningMethod(attributes))
-                .length(getMessageLength(attributes))
-                .build();
-    }
-
-    public <T> T parse(String message, AmlMessageBuilder<T> builder, Validator<T> validator) throws AmlParseException, AmlValidationException {
+    private static final char NO_RADIUS = 'N';
+
+    private static final int MIN_BATCH_RANGE_SIZE = 64;
+
+    private static final int BATCH_RANGES_PER_PROCESSOR = 4;
+
+    private final AmlSchema schema;
+
+    private final AmlRules rules;
+
+    private final TimestampParser timestampParser;
+
+    private final ThreadLocal<ParseContext> contexts;
+
+    public AmlMessageParser() {
+        this(AmlSchema.DEFAULT);
+    }
+
+    /**
+     * Creates a parser which accepts the extension attributes of the schema in addition to the ones defined by AML and
+     * passes their values to {@link AmlMessageBuilder#extension(AmlExtension, Object)}.
+     */
+    public AmlMessageParser(AmlSchema schema) {
+        this(schema, AmlRules.NONE);
+    }
+
+    /**
+     * Creates a parser which checks the rules right after scanning a message, before its values are decoded and built.
+     * {@link #parse(CharSequence, AmlMessageBuilder)} throws an {@link AmlValidationException} for a violated rule,
+     * {@link #tryParse(CharSequence, AmlMessageBuilder)} reports it as {@link ParseError#VALIDATION} without creating
+     * an exception.
+     */
+    public AmlMessageParser(AmlSchema schema, AmlRules rules) {
+        this(schema, rules, TimestampParser.UNCACHED, false);
+    }
+
+    private AmlMessageParser(AmlSchema schema, AmlRules rules, TimestampParser timestampParser, boolean threadLocalBuilders) {
+        this.schema = schema;
+        this.rules = rules;
+        this.timestampParser = timestampParser;
+        this.contexts = threadLocalBuilders ? ThreadLocal.withInitial(() -> new ParseContext(schema)) : null;
+    }
+
+    /**
+     * Creates a parser which remembers the most recently decoded minute of the time of positioning, which pays off for
+     * bursts of messages with nearly identical timestamps. The parser remains safe for concurrent use.
+     */
+    public static AmlMessageParser withTimeOfPositioningCache() {
+        return new AmlMessageParser(AmlSchema.DEFAULT, AmlRules.NONE, TimestampParser.cachingLastMinute(), false);
+    }
+
+    /**
+     * Creates a parser which keeps the scanned attributes and a {@link DefaultAmlMessageBuilder} per thread and resets
+     * them for every message instead of allocating new ones. The parser remains safe for concurrent use.
+     */
+    public static AmlMessageParser withThreadLocalBuilders() {
+        return withThreadLocalBuilders(AmlSchema.DEFAULT);
+    }
+
+    public static AmlMessageParser withThreadLocalBuilders(AmlSchema schema) {
+        return new AmlMessageParser(schema, AmlRules.NONE, TimestampParser.UNCACHED, true);
+    }
+
+    /**
+     * Creates a view which decodes the values of a message only when they are read, using the schema and the time of
+     * positioning decoding of this parser.
+     */
+    public AmlMessageView newView() {
+        return new AmlMessageView(schema, timestampParser);
+    }
+
+    public <T> T parse(CharSequence message, AmlMessageBuilder<T> builder) throws AmlParseException, AmlValidationException {
+        Attributes attributes = attributes();
+        attributes.scan(message);
+
+        T result = build(message, attributes, builder);
+        throwOnError(attributes);
+        return result;
+    }
+
+    public <T> T parse(CharSequence message, AmlMessageBuilder<T> builder, Validator<T> validator) throws AmlParseException, AmlValidationException {
         return validator.validate(parse(message, builder));
     }
 
-    public AmlMessage parse(String message) throws AmlParseException, AmlValidationException {
-        return parse(message, DefaultAmlMessageBuilder.newAdvancedMobileLocation(), new DefaultValidator());
+    public AmlMessage parse(CharSequence message) throws AmlParseException, AmlValidationException {
+        return parse(message, defaultBuilder(), DefaultValidator.INSTANCE);
+    }
+
+    /**
+     * Parses the ASCII encoded message in the given range of the array without decoding it to a String first.
+     */
+    public <T> T parse(byte[] message, int offset, int length, AmlMessageBuilder<T> builder) throws AmlParseException, AmlValidationException {
+        return parse(new ByteArrayCharSequence(message, offset, length), builder);
+    }
+
+    public <T> T parse(byte[] message, int offset, int length, AmlMessageBuilder<T> builder, Validator<T> validator) throws AmlParseException, AmlValidationException {
+        return validator.validate(parse(message, offset, length, builder));
+    }
+
+    public AmlMessage parse(byte[] message, int offset, int length) throws AmlParseException, AmlValidationException {
+        return parse(new ByteArrayCharSequence(message, offset, length));
+    }
+
+    /**
+     * Parses the ASCII encoded message between position and limit of a heap or direct buffer without decoding it to
+     * a String first. The position of the buffer is not changed.
+     */
+    public <T> T parse(ByteBuffer message, AmlMessageBuilder<T> builder) throws AmlParseException, AmlValidationException {
+        return parse(new ByteBufferCharSequence(message), builder);
+    }
+
+    public <T> T parse(ByteBuffer message, AmlMessageBuilder<T> builder, Validator<T> validator) throws AmlParseException, AmlValidationException {
+        return validator.validate(parse(message, builder));
+    }
+
+    public AmlMessage parse(ByteBuffer message) throws AmlParseException, AmlValidationException {
+        return parse(new ByteBufferCharSequence(message));
+    }
+
+    /**
+     * Parses a message packed in the GSM 03.38 default alphabet, as in the user data of an SMS, without decoding it to
+     * a String first. Lengths and offsets, including the value of {@code ml} and the offset of a {@link ParseResult},
+     * are in septets. Messages with septets without ISO 8859-1 character, i.e. Greek letters and characters of the
+     * extension table, are rejected.
+     *
+     * @param offset      the index of the first byte of the user data
+     * @param firstSeptet the number of septets to skip, e.g. the septets taken by a user data header and its fill bits
+     * @param septets     the number of septets of the message
+     */
+    public <T> T parseGsm7(byte[] userData, int offset, int firstSeptet, int septets, AmlMessageBuilder<T> builder, Validator<T> validator) throws AmlParseException, AmlValidationException {
+        byte[] text = gsm7Buffer(septets);
+        int unmapped = Gsm7Unpacker.unpack(userData, offset, firstSeptet, septets, text);
+        if (unmapped >= 0) {
+            throw new AmlParseException("unsupported GSM 7 bit character at offset " + unmapped);
+        }
+        return parse(new ByteArrayCharSequence(text, 0, septets), builder, validator);
+    }
+
+    public AmlMessage parseGsm7(byte[] userData, int offset, int firstSeptet, int septets) throws AmlParseException, AmlValidationException {
+        return parseGsm7(userData, offset, firstSeptet, septets, defaultBuilder(), DefaultValidator.INSTANCE);
+    }
+
+    /**
+     * Parses like {@link #parse(CharSequence, AmlMessageBuilder)}, but reports malformed messages through the result
+     * instead of throwing, which keeps rejecting junk input about as cheap as a successful parse. The builder is not
+     * called for malformed messages.
+     */
+    public <T> ParseResult<T> tryParse(CharSequence message, AmlMessageBuilder<T> builder) {
+        Attributes attributes = attributes();
+        attributes.scan(message);
+
+        T result = build(message, attributes, builder);
+        return attributes.hasError() ? attributes.toResult() : ParseResult.success(result);
+    }
+
+    /**
+     * Validation failures are reported as {@link ParseError#VALIDATION}. Validators used on this path should create
+     * their exceptions without stack trace.
+     */
+    public <T> ParseResult<T> tryParse(CharSequence message, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        return tryParse(message, attributes(), builder, validator);
+    }
+
+    public ParseResult<AmlMessage> tryParse(CharSequence message) {
+        return tryParse(message, defaultBuilder(), DefaultValidator.INSTANCE);
+    }
+
+    public <T> ParseResult<T> tryParse(byte[] message, int offset, int length, AmlMessageBuilder<T> builder) {
+        return tryParse(new ByteArrayCharSequence(message, offset, length), builder);
+    }
+
+    public <T> ParseResult<T> tryParse(byte[] message, int offset, int length, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        return tryParse(new ByteArrayCharSequence(message, offset, length), builder, validator);
+    }
+
+    public ParseResult<AmlMessage> tryParse(byte[] message, int offset, int length) {
+        return tryParse(new ByteArrayCharSequence(message, offset, length));
+    }
+
+    public <T> ParseResult<T> tryParse(ByteBuffer message, AmlMessageBuilder<T> builder) {
+        return tryParse(new ByteBufferCharSequence(message), builder);
+    }
+
+    public <T> ParseResult<T> tryParse(ByteBuffer message, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        return tryParse(new ByteBufferCharSequence(message), builder, validator);
+    }
+
+    public ParseResult<AmlMessage> tryParse(ByteBuffer message) {
+        return tryParse(new ByteBufferCharSequence(message));
+    }
+
+    /**
+     * Septets without ISO 8859-1 character, i.e. Greek letters and characters of the extension table, are reported
+     * as {@link ParseError#INVALID_VALUE} at their offset.
+     */
+    public <T> ParseResult<T> tryParseGsm7(byte[] userData, int offset, int firstSeptet, int septets, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        byte[] text = gsm7Buffer(septets);
+        int unmapped = Gsm7Unpacker.unpack(userData, offset, firstSeptet, septets, text);
+        return unmapped >= 0 ? ParseResult.failure(ParseError.INVALID_VALUE, null, unmapped) : tryParse(new ByteArrayCharSequence(text, 0, septets), builder, validator);
+    }
+
+    public ParseResult<AmlMessage> tryParseGsm7(byte[] userData, int offset, int firstSeptet, int septets) {
+        return tryParseGsm7(userData, offset, firstSeptet, septets, defaultBuilder(), DefaultValidator.INSTANCE);
+    }
+
+    /**
+     * Parses all messages of a random access list in order on the calling thread. A single builder is taken from the
+     * supplier and reused for all messages, so it must not keep state between {@link AmlMessageBuilder#build()} calls.
+     */
+    public <T> BatchResult<T> parseAll(List<? extends CharSequence> messages, Supplier<? extends AmlMessageBuilder<T>> builders, Validator<T> validator) {
+        BatchResult<T> result = new BatchResult<>(messages.size());
+        parseAll(messages, 0, messages.size(), newAttributes(), builders.get(), validator, result);
+        return result;
+    }
+
+    /**
+     * Parses all messages of a random access list split into ranges which are run by the executor, e.g. a
+     * {@link java.util.concurrent.ForkJoinPool}. Each range takes its own builder from the supplier, which is reused
+     * for all messages of the range. Results keep the index of their message.
+     */
+    public <T> BatchResult<T> parseAll(List<? extends CharSequence> messages, Supplier<? extends AmlMessageBuilder<T>> builders, Validator<T> validator, ExecutorService executor) throws InterruptedException {
+        BatchResult<T> result = new BatchResult<>(messages.size());
+
+        int rangeSize = Math.max(MIN_BATCH_RANGE_SIZE, messages.size() / (Runtime.getRuntime().availableProcessors() * BATCH_RANGES_PER_PROCESSOR));
+        List<Callable<Void>> ranges = new ArrayList<>();
+        for (int from = 0; from < messages.size(); from += rangeSize) {
+            int rangeFrom = from;
+            int rangeTo = Math.min(from + rangeSize, messages.size());
+            ranges.add(() -> {
+                parseAll(messages, rangeFrom, rangeTo, newAttributes(), builders.get(), validator, result);
+                return null;
+            });
+        }
+
+        for (Future<Void> range : executor.invokeAll(ranges)) {
+            try {
+                range.get();
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("parsing failed", e.getCause());
+            }
+        }
+        return result;
+    }
+
+    public BatchResult<AmlMessage> parseAll(List<? extends CharSequence> messages) {
+        return parseAll(messages, DefaultAmlMessageBuilder::newAdvancedMobileLocation, DefaultValidator.INSTANCE);
+    }
+
+    public BatchResult<AmlMessage> parseAll(List<? extends CharSequence> messages, ExecutorService executor) throws InterruptedException {
+        return parseAll(messages, DefaultAmlMessageBuilder::newAdvancedMobileLocation, DefaultValidator.INSTANCE, executor);
+    }
+
+    /**
+     * Stream of the results of a random access list of messages, in order. The stream can be made
+     * {@link Stream#parallel() parallel}, each split then takes its own builder from the supplier.
+     */
+    public <T> Stream<ParseResult<T>> parseStream(List<? extends CharSequence> messages, Supplier<? extends AmlMessageBuilder<T>> builders, Validator<T> validator) {
+        return StreamSupport.stream(new ParseSpliterator<>(this, messages, 0, messages.size(), builders, validator), false);
+    }
+
+    <T> ParseResult<T> tryParse(CharSequence message, Attributes attributes, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        T result = parse(message, attributes, builder, validator);
+        return attributes.hasError() ? attributes.toResult() : ParseResult.success(result);
+    }
+
+    <T> void parseAll(List<? extends CharSequence> messages, int from, int to, Attributes attributes, AmlMessageBuilder<T> builder, Validator<T> validator, BatchResult<T> result) {
+        for (int i = from; i < to; i++) {
+            T value = parse(messages.get(i), attributes, builder, validator);
+            if (attributes.hasError()) {
+                result.fail(i, attributes.getError(), attributes.getErrorAttribute(), attributes.getErrorOffset(), attributes.getValidationMessage());
+            } else {
+                result.set(i, value);
+            }
+        }
+    }
+
+    /**
+     * Parses and validates the message reusing the given attributes.
+     *
+     * @return the validated value or {@code null} with the error recorded in the attributes
+     */
+    <T> T parse(CharSequence message, Attributes attributes, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        attributes.scan(message);
+
+        return validate(build(message, attributes, builder), attributes, validator);
     }
 
-    private void checkAttributes(Attributes attributes) throws AmlParseException {
+    /**
+     * Parses attributes decoded from the body of an HTTPS request like a message, except that there is no ml
+     * attribute to check.
+     */
+    <T> T parseBody(CharSequence body, AmlMessageBuilder<T> builder, Validator<T> validator) throws AmlParseException, AmlValidationException {
+        Attributes attributes = attributes();
+        attributes.scan(body);
+
+        T result = build(attributes, builder);
+        throwOnError(attributes);
+        return validator.validate(result);
+    }
+
+    AmlMessage parseBody(CharSequence body) throws AmlParseException, AmlValidationException {
+        return parseBody(body, defaultBuilder(), DefaultValidator.INSTANCE);
+    }
+
+    <T> ParseResult<T> tryParseBody(CharSequence body, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        Attributes attributes = attributes();
+        attributes.scan(body);
+
+        T result = validate(build(attributes, builder), attributes, validator);
+        return attributes.hasError() ? attributes.toResult() : ParseResult.success(result);
+    }
+
+    ParseResult<AmlMessage> tryParseBody(CharSequence body) {
+        return tryParseBody(body, defaultBuilder(), DefaultValidator.INSTANCE);
+    }
+
+    private static <T> T validate(T value, Attributes attributes, Validator<T> validator) {
+        if (attributes.hasError()) {
+            return null;
+        }
+        try {
+            return withoutStackTraces(validator).validate(value);
+        } catch (AmlValidationException e) {
+            attributes.failValidation(e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * The failures of the default validator are recorded as results, so their stack traces would never be seen.
+     */
+    @SuppressWarnings("unchecked")
+    private static <T> Validator<T> withoutStackTraces(Validator<T> validator) {
+        return validator == DefaultValidator.INSTANCE ? (Validator<T>) (Validator<?>) DefaultValidator.WITHOUT_STACK_TRACES : validator;
+    }
+
+    private static void throwOnError(Attributes attributes) throws AmlParseException, AmlValidationException {
+        if (attributes.getError() == ParseError.VALIDATION) {
+            throw new AmlValidationException(attributes.getValidationMessage());
+        }
+        if (attributes.hasError()) {
+            throw attributes.toException();
+        }
+    }
+
+    private Attributes attributes() {
+        return contexts == null ? newAttributes() : contexts.get().attributes;
+    }
+
+    private byte[] gsm7Buffer(int septets) {
+        byte[] text;
+        if (contexts == null) {
+            text = new byte[septets];
+        } else {
+            ParseContext context = contexts.get();
+            if (context.text.length < septets) {
+                context.text = new byte[septets];
+            }
+            text = context.text;
+        }
+        return text;
+    }
+
+    Attributes newAttributes() {
+        return new Attributes(schema);
+    }
+
+    private DefaultAmlMessageBuilder defaultBuilder() {
+        return contexts == null ? DefaultAmlMessageBuilder.newAdvancedMobileLocation() : contexts.get().builder.reset();
+    }
+
+    /**
+     * @return the built value or {@code null} with the error recorded in the attributes
+     */
+    private <T> T build(CharSequence message, Attributes attributes, AmlMessageBuilder<T> builder) {
+        attributes.checkLength(message.length());
+        return build(attributes, builder);
+    }
+
+    /**
+     * Builds the value from scanned attributes whose length has been checked, if there is one to check.
+     *
+     * @return the built value or {@code null} with the error recorded in the attributes
+     */
+    private <T> T build(Attributes attributes, AmlMessageBuilder<T> builder) {
         attributes.check();
+        if (attributes.hasError() || !rules.check(attributes)) {
+            return null;
+        }
+        if (builder instanceof SelectiveAmlMessageBuilder) {
+            attributes.project(((SelectiveAmlMessageBuilder<T>) builder).consumedAttributes());
+        }
+        if (builder instanceof PrimitiveAmlMessageBuilder) {
+            return build(attributes, (PrimitiveAmlMessageBuilder<T>) builder);
+        }
+
+        Integer version = getHeaderValue(attributes);
+        Double latitude = getLatitude(attributes);
+        Double longitude = getLongitude(attributes);
+        Double radius = getRadius(attributes);
+        String imei = getImei(attributes);
+        String imsi = getImsi(attributes);
+        Integer loc = getLoc(attributes);
+        String mcc = getMcc(attributes);
+        String mnc = getMnc(attributes);
+        Instant top = getTop(attributes);
+        PositioningMethod positioningMethod = getPositioningMethod(attributes);
+        Integer length = getMessageLength(attributes);
+        attributes.decodeExtensions();
+        if (attributes.hasError()) {
+            return null;
+        }
+
+        builder.version(version)
+                .latitude(latitude)
+                .longitude(longitude)
+                .radiusMeters(radius)
+                .imei(imei)
+                .imsi(imsi)
+                .levelOfConfidence(loc)
+                .mcc(mcc)
+                .mnc(mnc)
+                .timeOfPositioning(top)
+                .positionMethod(positioningMethod)
+                .length(length);
+        attributes.setExtensions(builder);
+        return builder.build();
     }
 
-    private void checkMessageLength(String message, Attributes attributes) throws AmlParseException {
-        Integer expectedMessageLength = getMessageLength(attributes);
-        Integer actualMessageLength = message.length();
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity", "PMD.NPathComplexity"})
+    private <T> T build(Attributes attributes, PrimitiveAmlMessageBuilder<T> builder) {
+        boolean hasVersion = attributes.contains(AttributeName.VERSION);
+        int version = hasVersion ? attributes.getInt(AttributeName.VERSION) : 0;
+        boolean hasLatitude = attributes.contains(AttributeName.LATITUDE);
+        double latitude = hasLatitude ? attributes.getDouble(AttributeName.LATITUDE) : 0;
+        boolean hasLongitude = attributes.contains(AttributeName.LONGITUDE);
+        double longitude = hasLongitude ? attributes.getDouble(AttributeName.LONGITUDE) : 0;
+        boolean hasRadius = attributes.contains(AttributeName.RADIUS) && !attributes.isValue(AttributeName.RADIUS, NO_RADIUS);
+        double radius = hasRadius ? attributes.getDouble(AttributeName.RADIUS) : 0;
+        String imei = getImei(attributes);
+        String imsi = getImsi(attributes);
+        boolean hasLoc = attributes.contains(AttributeName.LEVEL_OF_CONFIDENCE);
+        int loc = hasLoc ? attributes.getInt(AttributeName.LEVEL_OF_CONFIDENCE) : 0;
+        String mcc = getMcc(attributes);
+        String mnc = getMnc(attributes);
+        boolean hasTop = attributes.contains(AttributeName.TIME_OF_POSITIONING);
+        long top = hasTop ? attributes.getEpochSecond(AttributeName.TIME_OF_POSITIONING, timestampParser) : 0;
+        PositioningMethod positioningMethod = getPositioningMethod(attributes);
+        boolean hasLength = attributes.contains(AttributeName.LENGTH);
+        int length = hasLength ? attributes.getInt(AttributeName.LENGTH) : 0;
+        attributes.decodeExtensions();
+        if (attributes.hasError()) {
+            return null;
+        }
 
-        if (!Objects.equals(expectedMessageLength, actualMessageLength)) {
-            throw new AmlParseException("expected message length " + expectedMessageLength + " but was " + actualMessageLength);
+        if (hasVersion) {
+            builder.version(version);
+        } else {
+            builder.version((Integer) null);
+        }
+        if (hasLatitude) {
+            builder.latitude(latitude);
+        } else {
+            builder.latitude((Double) null);
+        }
+        if (hasLongitude) {
+            builder.longitude(longitude);
+        } else {
+            builder.longitude((Double) null);
+        }
+        if (hasRadius) {
+            builder.radiusMeters(radius);
+        } else {
+            builder.radiusMeters((Double) null);
         }
+        builder.imei(imei);
+        builder.imsi(imsi);
+        if (hasLoc) {
+            builder.levelOfConfidence(loc);
+        } else {
+            builder.levelOfConfidence((Integer) null);
+        }
+        builder.mcc(mcc);
+        builder.mnc(mnc);
+        if (hasTop) {
+            builder.timeOfPositioning(top);
+        } else {
+            builder.timeOfPositioning((Instant) null);
+        }
+        builder.positionMethod(positioningMethod);
+        if (hasLength) {
+            builder.length(length);
+        } else {
+            builder.length((Integer) null);
+        }
+        attributes.setExtensions(builder);
+        return builder.build();
     }
 
-    private Integer getHeaderValue(Attributes attributes) throws AmlParseException {
-        return attributes.get("A\"ML", Attribute::getIntegerValue);
+    private Integer getHeaderValue(Attributes attributes) {
+        return getInteger(attributes, AttributeName.VERSION);
     }
 
-    private Double getLatitude(Attributes attributes) throws AmlParseException {
-        return attributes.get("lt", Attribute::getDoubleValue);
+    private Double getLatitude(Attributes attributes) {
+        return getDouble(attributes, AttributeName.LATITUDE);
     }
 
-    private Double getLongitude(Attributes attributes) throws AmlParseException {
-        return attributes.get("lg", Attribute::getDoubleValue);
+    private Double getLongitude(Attributes attributes) {
+        return getDouble(attributes, AttributeName.LONGITUDE);
     }
 
-    private Double getRadius(Attributes attributes) throws AmlParseException {
-        String rd = attributes.get("rd", Attribute::getStringValue);
-        return rd.equals("N") ? null : Double.valueOf(rd);
+    private Double getRadius(Attributes attributes) {
+        return attributes.isValue(AttributeName.RADIUS, NO_RADIUS) ? null : getDouble(attributes, AttributeName.RADIUS);
     }
 
-    private Instant getTop(Attributes attributes) throws AmlParseException {
-        return attributes.get("top", Attribute::getInstantValue);
+    private Instant getTop(Attributes attributes) {
+        if (!attributes.contains(AttributeName.TIME_OF_POSITIONING)) {
+            return null;
+        }
+        long epochSecond = attributes.getEpochSecond(AttributeName.TIME_OF_POSITIONING, timestampParser);
+        return epochSecond == TimestampParser.INVALID ? null : Instant.ofEpochSecond(epochSecond);
     }
 
-    private Integer getLoc(Attributes attributes) throws AmlParseException {
-        return attributes.get("lc", Attribute::getIntegerValue);
+    private Integer getLoc(Attributes attributes) {
+        return getInteger(attributes, AttributeName.LEVEL_OF_CONFIDENCE);
     }
 
-    private PositioningMethod getPositioningMethod(Attributes attributes) throws AmlParseException {
-        return attributes.get("pm", Attribute::getPositioningMethod);
+    private PositioningMethod getPositioningMethod(Attributes attributes) {
+        return attributes.get(AttributeName.POSITIONING_METHOD, Attribute::getPositioningMethod);
     }
 
-    private String getImsi(Attributes attributes) throws AmlParseException {
-        return attributes.get("si", Attribute::getStringValue);
+    private String getImsi(Attributes attributes) {
+        return attributes.get(AttributeName.IMSI, Attribute::getStringValue);
     }
 
-    private String getImei(Attributes attributes) throws AmlParseException {
-        return attributes.get("ei", Attribute::getStringValue);
+    private String getImei(Attributes attributes) {
+        return attributes.get(AttributeName.IMEI, Attribute::getStringValue);
     }
 
-    private String getMcc(Attributes attributes) throws AmlParseException {
-        return attributes.get("mcc", Attribute::getStringValue);
+    private String getMcc(Attributes attributes) {
+        return attributes.get(AttributeName.MCC, Attribute::getStringValue);
     }
 
-    private String getMnc(Attributes attributes) throws AmlParseException {
-        return attributes.get("mnc", Attribute::getStringValue);
+    private String getMnc(Attributes attributes) {
+        return attributes.get(AttributeName.MNC, Attribute::getStringValue);
     }
 
-    private Integer getMessageLength(Attributes attributes) throws AmlParseException {
-        return attributes.get("ml", Attribute::getIntegerValue);
+    private Integer getMessageLength(Attributes attributes) {
+        return getInteger(attributes, AttributeName.LENGTH);
+    }
+
+    /**
+     * Values already decoded by the rules or the length check are reused, an invalid value is recorded as error.
+     */
+    private static Integer getInteger(Attributes attributes, AttributeName name) {
+        return attributes.contains(name) ? Integer.valueOf(attributes.getInt(name)) : null;
+    }
+
+    private static Double getDouble(Attributes attributes, AttributeName name) {
+        return attributes.contains(name) ? Double.valueOf(attributes.getDouble(name)) : null;
+    }
+
+    private static final class ParseContext {
+        private final Attributes attributes;
+        private final DefaultAmlMessageBuilder builder = DefaultAmlMessageBuilder.newAdvancedMobileLocation();
+        private byte[] text = new byte[0];
+
+        private ParseContext(AmlSchema schema) {
+            this.attributes = new Attributes(schema);
+        }
     }
 }
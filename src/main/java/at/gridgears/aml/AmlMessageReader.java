@@ -0,0 +1,225 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.AmlMessageBuilder;
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.validation.DefaultValidator;
+import at.gridgears.aml.validation.Validator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Reads newline delimited AML messages from a stream, a channel or a memory-mapped file. The input is consumed through
+ * a single buffer of fixed size, so memory stays bounded independent of the input size. Empty lines and trailing
+ * carriage returns are ignored, lines longer than the buffer are reported as {@link ParseError#MESSAGE_TOO_LONG}.
+ * <p>
+ * The builder is reused for all messages. A reader is not thread-safe.
+ */
+public final class AmlMessageReader<T> {
+    public static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+    private final AmlMessageParser parser;
+    private final AmlMessageBuilder<T> builder;
+    private final Validator<T> validator;
+    private final int bufferSize;
+    private final Attributes attributes;
+
+    public AmlMessageReader(AmlMessageParser parser, AmlMessageBuilder<T> builder, Validator<T> validator) {
+        this(parser, builder, validator, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * @param bufferSize the size of the read buffer, which is the maximum length of a line
+     */
+    public AmlMessageReader(AmlMessageParser parser, AmlMessageBuilder<T> builder, Validator<T> validator, int bufferSize) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size must be positive but was " + bufferSize);
+        }
+        this.parser = parser;
+        this.attributes = parser.newAttributes();
+        this.builder = builder;
+        this.validator = validator;
+        this.bufferSize = bufferSize;
+    }
+
+    public static AmlMessageReader<AmlMessage> newAdvancedMobileLocationReader() {
+        return new AmlMessageReader<>(new AmlMessageParser(), DefaultAmlMessageBuilder.newAdvancedMobileLocation(), DefaultValidator.INSTANCE);
+    }
+
+    /**
+     * Parses all lines of the stream. The stream is not closed.
+     *
+     * @param messages receives the valid messages
+     * @param errors   receives the failures together with the one based line number, empty lines included
+     * @return the number of lines read, empty lines included
+     */
+    public long read(InputStream input, Consumer<? super T> messages, ObjLongConsumer<? super ParseResult<T>> errors) throws IOException {
+        return read(Channels.newChannel(input), messages, errors);
+    }
+
+    /**
+     * Parses all lines of the channel, which has to be blocking. The channel is not closed.
+     *
+     * @see #read(InputStream, Consumer, ObjLongConsumer)
+     */
+    public long read(ReadableByteChannel input, Consumer<? super T> messages, ObjLongConsumer<? super ParseResult<T>> errors) throws IOException {
+        return read(LineScanner.reading(input, bufferSize), messages, errors);
+    }
+
+    /**
+     * Parses all lines of the file, which is mapped into memory in windows of up to 2 GB.
+     *
+     * @see #read(InputStream, Consumer, ObjLongConsumer)
+     */
+    public long read(Path file, Consumer<? super T> messages, ObjLongConsumer<? super ParseResult<T>> errors) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return read(LineScanner.mapping(channel, bufferSize, LineScanner.MAX_WINDOW_SIZE), messages, errors);
+        }
+    }
+
+    /**
+     * Returns an iterator over the results of all lines of the stream. I/O errors are thrown as
+     * {@link UncheckedIOException}. The stream is not closed.
+     */
+    public Iterator<ParseResult<T>> iterator(InputStream input) {
+        return iterator(Channels.newChannel(input));
+    }
+
+    /**
+     * @see #iterator(InputStream)
+     */
+    public Iterator<ParseResult<T>> iterator(ReadableByteChannel input) {
+        return new ResultIterator(LineScanner.reading(input, bufferSize), null);
+    }
+
+    /**
+     * Returns an iterator over the results of all lines of the file, which is mapped into memory in windows of up to
+     * 2 GB. The file is closed when the iterator is exhausted or fails. The iterator is {@link Closeable} to
+     * close the file when the iteration is stopped early.
+     *
+     * @see #iterator(InputStream)
+     */
+    public Iterator<ParseResult<T>> iterator(Path file) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        return new ResultIterator(LineScanner.mapping(channel, bufferSize, LineScanner.MAX_WINDOW_SIZE), channel);
+    }
+
+    private long read(LineScanner lines, Consumer<? super T> messages, ObjLongConsumer<? super ParseResult<T>> errors) throws IOException {
+        while (lines.next()) {
+            if (lines.isTooLong()) {
+                errors.accept(ParseResult.failure(ParseError.MESSAGE_TOO_LONG, null, -1), lines.lineNumber());
+                continue;
+            }
+            T value = parser.parse(line(lines), attributes, builder, validator);
+            if (attributes.hasError()) {
+                errors.accept(attributes.toResult(), lines.lineNumber());
+            } else {
+                messages.accept(value);
+            }
+        }
+        return lines.lineNumber();
+    }
+
+    private ParseResult<T> parse(LineScanner lines) {
+        if (lines.isTooLong()) {
+            return ParseResult.failure(ParseError.MESSAGE_TOO_LONG, null, -1);
+        }
+        return parser.tryParse(line(lines), attributes, builder, validator);
+    }
+
+    private static CharSequence line(LineScanner lines) {
+        ByteBuffer buffer = lines.buffer();
+        return new ByteBufferCharSequence(buffer, lines.start(), lines.length());
+    }
+
+    private final class ResultIterator implements Iterator<ParseResult<T>>, Closeable {
+        private final LineScanner lines;
+        private final Closeable input;
+        private ParseResult<T> next;
+
+        /**
+         * @param input closed at the end of the lines or {@code null} if the caller owns the input
+         */
+        ResultIterator(LineScanner lines, Closeable input) {
+            this.lines = lines;
+            this.input = input;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (next == null) {
+                try {
+                    next = lines.next() ? parse(lines) : null;
+                    if (next == null) {
+                        close();
+                    }
+                } catch (IOException e) {
+                    closeQuietly(e);
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return next != null;
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (input != null) {
+                input.close();
+            }
+        }
+
+        private void closeQuietly(IOException failure) {
+            try {
+                close();
+            } catch (IOException e) {
+                failure.addSuppressed(e);
+            }
+        }
+
+        @Override
+        public ParseResult<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            ParseResult<T> result = next;
+            next = null;
+            return result;
+        }
+    }
+}
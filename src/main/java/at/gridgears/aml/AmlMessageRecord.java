@@ -0,0 +1,162 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Flyweight view on a record written by {@link AmlMessageCodec}, which reads values directly from the buffer when
+ * they are requested. A single record can be re-pointed at any number of records. Primitive getters report missing
+ * values like {@link AmlMessageBatch}. A record is not thread-safe.
+ */
+public final class AmlMessageRecord {
+    private static final PositioningMethod[] POSITIONING_METHODS = PositioningMethod.values();
+
+    private ByteBuffer buffer;
+
+    private int offset;
+
+    private boolean wrapped;
+
+    public AmlMessageRecord() {
+        this.buffer = ByteBuffer.allocate(0);
+    }
+
+    /**
+     * Points the view at the record at the given offset of the buffer. The position of the buffer is not used.
+     *
+     * @throws IllegalArgumentException  if the record has an unknown format version or positioning method
+     * @throws IndexOutOfBoundsException if the record exceeds the buffer
+     */
+    public AmlMessageRecord wrap(ByteBuffer buffer, int offset) {
+        if (offset < 0 || offset > buffer.limit() - AmlMessageCodec.RECORD_SIZE) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", record size " + AmlMessageCodec.RECORD_SIZE + ", limit " + buffer.limit());
+        }
+        byte formatVersion = buffer.get(offset + AmlMessageCodec.FORMAT_VERSION_OFFSET);
+        if (formatVersion != AmlMessageCodec.FORMAT_VERSION) {
+            throw new IllegalArgumentException("unknown format version: " + formatVersion);
+        }
+        int positioningMethod = buffer.get(offset + AmlMessageCodec.POSITIONING_METHOD_OFFSET);
+        if (positioningMethod < 0 || positioningMethod >= POSITIONING_METHODS.length) {
+            throw new IllegalArgumentException("unknown positioning method: " + positioningMethod);
+        }
+        this.buffer = buffer;
+        this.offset = offset;
+        this.wrapped = true;
+        return this;
+    }
+
+    /**
+     * @return the interface version or -1 if the message has none
+     */
+    public int getVersion() {
+        return isPresent(Presence.VERSION) ? unsignedByte(AmlMessageCodec.VERSION_OFFSET) : -1;
+    }
+
+    /**
+     * @return the latitude or {@link Double#NaN} if the message has none
+     */
+    public double getLatitude() {
+        return isPresent(Presence.LATITUDE) ? getDouble(AmlMessageCodec.LATITUDE_OFFSET) : Double.NaN;
+    }
+
+    /**
+     * @return the longitude or {@link Double#NaN} if the message has none
+     */
+    public double getLongitude() {
+        return isPresent(Presence.LONGITUDE) ? getDouble(AmlMessageCodec.LONGITUDE_OFFSET) : Double.NaN;
+    }
+
+    /**
+     * @return the radius or {@link Double#NaN} if the message has none
+     */
+    public double getRadiusMeters() {
+        return isPresent(Presence.RADIUS) ? getDouble(AmlMessageCodec.RADIUS_OFFSET) : Double.NaN;
+    }
+
+    /**
+     * @return the time of positioning in seconds since the epoch or {@link Long#MIN_VALUE} if the message has none
+     */
+    public long getEpochSecond() {
+        return isPresent(Presence.TIME_OF_POSITIONING) ? getLong(AmlMessageCodec.TIME_OF_POSITIONING_OFFSET) : Long.MIN_VALUE;
+    }
+
+    /**
+     * @return the level of confidence or -1 if the message has none
+     */
+    public int getLevelOfConfidence() {
+        return isPresent(Presence.LEVEL_OF_CONFIDENCE) ? unsignedByte(AmlMessageCodec.LEVEL_OF_CONFIDENCE_OFFSET) : -1;
+    }
+
+    public PositioningMethod getPositionMethod() {
+        return isPresent(Presence.POSITIONING_METHOD) ? POSITIONING_METHODS[buffer.get(offset + AmlMessageCodec.POSITIONING_METHOD_OFFSET)] : null;
+    }
+
+    /**
+     * @return the message length or -1 if the message has none
+     */
+    public int getLength() {
+        return isPresent(Presence.LENGTH) ? AmlMessageCodec.getShort(buffer, offset + AmlMessageCodec.LENGTH_OFFSET) & 0xffff : -1;
+    }
+
+    /**
+     * Decodes all values into a new message.
+     */
+    public AmlMessage toAmlMessage() {
+        int present = AmlMessageCodec.getShort(buffer, offset + AmlMessageCodec.PRESENCE_OFFSET);
+        return new AmlMessage(
+                present,
+                unsignedByte(AmlMessageCodec.VERSION_OFFSET),
+                getDouble(AmlMessageCodec.LATITUDE_OFFSET),
+                getDouble(AmlMessageCodec.LONGITUDE_OFFSET),
+                getDouble(AmlMessageCodec.RADIUS_OFFSET),
+                getLong(AmlMessageCodec.IMSI_OFFSET),
+                getLong(AmlMessageCodec.IMEI_OFFSET),
+                getLong(AmlMessageCodec.TIME_OF_POSITIONING_OFFSET),
+                unsignedByte(AmlMessageCodec.LEVEL_OF_CONFIDENCE_OFFSET),
+                getPositionMethod(),
+                AmlMessageCodec.getInt(buffer, offset + AmlMessageCodec.NETWORK_CODES_OFFSET),
+                AmlMessageCodec.getShort(buffer, offset + AmlMessageCodec.LENGTH_OFFSET) & 0xffff);
+    }
+
+    private boolean isPresent(int attribute) {
+        if (!wrapped) {
+            throw new IllegalStateException("the record does not point at a buffer");
+        }
+        return (AmlMessageCodec.getShort(buffer, offset + AmlMessageCodec.PRESENCE_OFFSET) & attribute) != 0;
+    }
+
+    private int unsignedByte(int field) {
+        return buffer.get(offset + field) & 0xff;
+    }
+
+    private double getDouble(int field) {
+        return Double.longBitsToDouble(getLong(field));
+    }
+
+    private long getLong(int field) {
+        return AmlMessageCodec.getLong(buffer, offset + field);
+    }
+}
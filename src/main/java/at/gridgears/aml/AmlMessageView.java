@@ -0,0 +1,188 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.exceptions.AmlParseException;
+
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.function.Function;
+
+/**
+ * Flyweight view on a raw AML message which decodes attribute values only when their getter is called. Structure and
+ * message length are checked when the view is pointed at a message, invalid values are reported by the getters.
+ * <p>
+ * A single view can be re-pointed at any number of messages, the values of the previous message are not available
+ * anymore afterwards. Views on byte arrays and buffers do not copy the message, so it must not be modified while it
+ * is read. A view is not thread-safe.
+ */
+public final class AmlMessageView {
+    private static final char NO_RADIUS = 'N';
+
+    private final Attributes attributes;
+
+    private final TimestampParser timestampParser;
+
+    private boolean wrapped;
+
+    public AmlMessageView() {
+        this(AmlSchema.DEFAULT, TimestampParser.UNCACHED);
+    }
+
+    /**
+     * Creates a view which accepts the extension attributes of the schema.
+     */
+    public AmlMessageView(AmlSchema schema) {
+        this(schema, TimestampParser.UNCACHED);
+    }
+
+    AmlMessageView(AmlSchema schema, TimestampParser timestampParser) {
+        this.attributes = new Attributes(schema);
+        this.timestampParser = timestampParser;
+    }
+
+    /**
+     * Points the view at the given message.
+     *
+     * @throws AmlParseException if the message is malformed, contains unknown attributes or does not match its ml
+     *                           attribute
+     */
+    public AmlMessageView wrap(CharSequence message) throws AmlParseException {
+        wrapped = false;
+        attributes.scan(message);
+        attributes.checkLength(message.length());
+        attributes.check();
+        if (attributes.hasError()) {
+            throw attributes.toException();
+        }
+        wrapped = true;
+        return this;
+    }
+
+    /**
+     * Points the view at the ASCII encoded message in the given range of the array.
+     *
+     * @see #wrap(CharSequence)
+     */
+    public AmlMessageView wrap(byte[] message, int offset, int length) throws AmlParseException {
+        return wrap(new ByteArrayCharSequence(message, offset, length));
+    }
+
+    /**
+     * Points the view at the ASCII encoded message between position and limit of the buffer. The position of the
+     * buffer is not changed.
+     *
+     * @see #wrap(CharSequence)
+     */
+    public AmlMessageView wrap(ByteBuffer message) throws AmlParseException {
+        return wrap(new ByteBufferCharSequence(message));
+    }
+
+    public Integer getVersion() throws AmlParseException {
+        return decode(AttributeName.VERSION, Attribute::getIntegerValue);
+    }
+
+    public Double getLatitude() throws AmlParseException {
+        return decode(AttributeName.LATITUDE, Attribute::getDoubleValue);
+    }
+
+    public Double getLongitude() throws AmlParseException {
+        return decode(AttributeName.LONGITUDE, Attribute::getDoubleValue);
+    }
+
+    public Double getRadiusMeters() throws AmlParseException {
+        return attributes.isValue(AttributeName.RADIUS, NO_RADIUS) ? null : decode(AttributeName.RADIUS, Attribute::getDoubleValue);
+    }
+
+    public String getImsi() throws AmlParseException {
+        return decode(AttributeName.IMSI, Attribute::getStringValue);
+    }
+
+    public String getImei() throws AmlParseException {
+        return decode(AttributeName.IMEI, Attribute::getStringValue);
+    }
+
+    public Instant getTimeOfPositioning() throws AmlParseException {
+        return decode(AttributeName.TIME_OF_POSITIONING, attribute -> {
+            long epochSecond = attribute.epochSecondValue(timestampParser);
+            return epochSecond == TimestampParser.INVALID ? null : Instant.ofEpochSecond(epochSecond);
+        });
+    }
+
+    public Integer getLevelOfConfidence() throws AmlParseException {
+        return decode(AttributeName.LEVEL_OF_CONFIDENCE, Attribute::getIntegerValue);
+    }
+
+    public PositioningMethod getPositionMethod() throws AmlParseException {
+        return decode(AttributeName.POSITIONING_METHOD, Attribute::getPositioningMethod);
+    }
+
+    public String getMcc() throws AmlParseException {
+        return decode(AttributeName.MCC, Attribute::getStringValue);
+    }
+
+    public String getMnc() throws AmlParseException {
+        return decode(AttributeName.MNC, Attribute::getStringValue);
+    }
+
+    public Integer getLength() throws AmlParseException {
+        return decode(AttributeName.LENGTH, Attribute::getIntegerValue);
+    }
+
+    /**
+     * @return the value of the extension attribute or {@code null} if the message does not contain it
+     * @throws IllegalArgumentException if the extension is not part of the schema of the view
+     */
+    public <V> V get(AmlExtension<V> extension) throws AmlParseException {
+        checkWrapped();
+        return attributes.decodeExtension(extension);
+    }
+
+    /**
+     * Decodes all values into a new message, which stays valid after the view has been re-pointed. The message is
+     * not validated.
+     */
+    public AmlMessage toAmlMessage() throws AmlParseException {
+        return new AmlMessage(getVersion(), getLatitude(), getLongitude(), getRadiusMeters(), getImsi(), getImei(), getTimeOfPositioning(), getLevelOfConfidence(), getPositionMethod(), getMcc(), getMnc(), getLength());
+    }
+
+    private <T> T decode(AttributeName name, Function<Attribute, T> function) throws AmlParseException {
+        checkWrapped();
+        if (!attributes.contains(name)) {
+            return null;
+        }
+        T value = attributes.decode(name, function);
+        if (value == null) {
+            throw attributes.invalidValue(name);
+        }
+        return value;
+    }
+
+    private void checkWrapped() {
+        if (!wrapped) {
+            throw new IllegalStateException("the view does not point at a valid message");
+        }
+    }
+}
@@ -0,0 +1,341 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Renders messages in the SMS text format read by {@link AmlMessageParser}. Attributes are written in the order
+ * {@code A"ML, lt, lg, rd, top, lc, pm, si, ei, mcc, mnc, ml}, missing attributes are left out, except for a missing
+ * radius of a message with latitude, which is written as {@code rd=N}.
+ * <p>
+ * Latitude and longitude are written as {@code +/-dd.ddddd} and {@code +/-ddd.ddddd}, the radius in whole meters and the
+ * time of positioning as {@code yyyyMMddHHmmss} in UTC. The {@code ml} attribute is always computed from the
+ * rendered message, the length of the given message is ignored.
+ * <p>
+ * Messages are rendered into a reused internal buffer and copied to the target, so no intermediate Strings are
+ * created. A writer is not thread-safe.
+ * <p>
+ * The format has no escaping, so an identifier ({@code si, ei, mcc, mnc}) which is empty or contains {@code ;},
+ * {@code =} or characters outside ISO 8859-1 cannot be written and is rejected with an
+ * {@link IllegalArgumentException}. The same applies to a radius which is not a whole number of meters, as rounding it
+ * would change the message.
+ */
+public final class AmlMessageWriter {
+    private static final PositioningMethodMapper POSITIONING_METHOD_MAPPER = new PositioningMethodMapper();
+
+    private static final int INITIAL_CAPACITY = 256;
+
+    private static final int COORDINATE_DECIMALS = 5;
+
+    private static final double COORDINATE_SCALE = 100_000;
+
+    private static final int LATITUDE_DIGITS = 2;
+
+    private static final int LONGITUDE_DIGITS = 3;
+
+    private static final byte[] LENGTH_PREFIX = {';', 'm', 'l', '='};
+
+    private static final int SECONDS_PER_DAY = 86400;
+    private static final int DAYS_PER_ERA = 146097;
+    private static final int DAYS_0000_TO_1970 = 719468;
+    private static final int MAX_YEAR = 9999;
+
+    private byte[] buffer = new byte[INITIAL_CAPACITY];
+
+    private int position;
+
+    /**
+     * @return the rendered message
+     */
+    public String write(AmlMessage message) {
+        render(message);
+        return new String(buffer, 0, position, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Appends the rendered message to the target.
+     *
+     * @return the target
+     */
+    public StringBuilder write(AmlMessage message, StringBuilder target) {
+        render(message);
+        target.ensureCapacity(target.length() + position);
+        for (int i = 0; i < position; i++) {
+            target.append((char) (buffer[i] & 0xff));
+        }
+        return target;
+    }
+
+    /**
+     * Writes the ASCII encoded message into the array starting at the offset.
+     *
+     * @return the number of bytes written
+     * @throws IndexOutOfBoundsException if the message does not fit into the array
+     */
+    public int write(AmlMessage message, byte[] target, int offset) {
+        render(message);
+        if (offset < 0 || offset > target.length - position) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", message length " + position + ", array length " + target.length);
+        }
+        System.arraycopy(buffer, 0, target, offset, position);
+        return position;
+    }
+
+    /**
+     * Writes the ASCII encoded message at the position of the buffer and advances the position.
+     *
+     * @return the number of bytes written
+     * @throws BufferOverflowException if the message does not fit into the remaining space
+     */
+    public int write(AmlMessage message, ByteBuffer target) {
+        render(message);
+        target.put(buffer, 0, position);
+        return position;
+    }
+
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity", "PMD.NPathComplexity"})
+    private void render(AmlMessage message) {
+        position = 0;
+        int present = message.present();
+        if (has(present, Presence.VERSION)) {
+            name("A\"ML");
+            putInt(message.version());
+        }
+        if (has(present, Presence.LATITUDE)) {
+            name("lt");
+            putCoordinate(message.latitude(), LATITUDE_DIGITS);
+        }
+        if (has(present, Presence.LONGITUDE)) {
+            name("lg");
+            putCoordinate(message.longitude(), LONGITUDE_DIGITS);
+        }
+        if (has(present, Presence.RADIUS)) {
+            name("rd");
+            putRadius(message.radiusMeters());
+        } else if (has(present, Presence.LATITUDE)) {
+            name("rd");
+            put('N');
+        }
+        if (has(present, Presence.TIME_OF_POSITIONING)) {
+            name("top");
+            putTimestamp(message.epochSecond());
+        }
+        if (has(present, Presence.LEVEL_OF_CONFIDENCE)) {
+            name("lc");
+            putInt(message.levelOfConfidence());
+        }
+        if (message.getPositionMethod() != null) {
+            name("pm");
+            put(POSITIONING_METHOD_MAPPER.getCode(message.getPositionMethod()));
+        }
+        if (message.isPacked()) {
+            if (has(present, Presence.IMSI)) {
+                name("si");
+                putPacked(message.packedImsi());
+            }
+            if (has(present, Presence.IMEI)) {
+                name("ei");
+                putPacked(message.packedImei());
+            }
+            if (has(present, Presence.MCC)) {
+                name("mcc");
+                putPacked(DigitPacking.mcc(message.networkCodes()));
+            }
+            if (has(present, Presence.MNC)) {
+                name("mnc");
+                putPacked(DigitPacking.mnc(message.networkCodes()));
+            }
+        } else {
+            putString("si", message.getImsi());
+            putString("ei", message.getImei());
+            putString("mcc", message.getMcc());
+            putString("mnc", message.getMnc());
+        }
+        putLength();
+    }
+
+    /**
+     * Appends {@code ml} with the length of the complete message including the attribute itself.
+     */
+    private void putLength() {
+        int prefixLength = position == 0 ? LENGTH_PREFIX.length - 1 : LENGTH_PREFIX.length;
+        int length = position + prefixLength + 1;
+        while (digitCount(length) != length - position - prefixLength) {
+            length++;
+        }
+        for (int i = LENGTH_PREFIX.length - prefixLength; i < LENGTH_PREFIX.length; i++) {
+            put((char) LENGTH_PREFIX[i]);
+        }
+        putLong(length);
+    }
+
+    private void name(String name) {
+        if (position > 0) {
+            put(';');
+        }
+        for (int i = 0; i < name.length(); i++) {
+            put(name.charAt(i));
+        }
+        put('=');
+    }
+
+    private void putString(String name, String value) {
+        if (value != null) {
+            checkIdentifier(name, value);
+            name(name);
+            for (int i = 0; i < value.length(); i++) {
+                put(value.charAt(i));
+            }
+        }
+    }
+
+    private static void checkIdentifier(String name, String value) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException(name + " cannot be written: empty");
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char character = value.charAt(i);
+            if (character == ';' || character == '=' || character > 0xFF) {
+                throw new IllegalArgumentException(name + " cannot be written: " + value);
+            }
+        }
+    }
+
+    private void putRadius(double radiusMeters) {
+        long wholeMeters = (long) radiusMeters;
+        // rejects NaN, infinity and values beyond the range of long as well, without comparing doubles for equality
+        if (!(Math.abs(radiusMeters - wholeMeters) < Double.MIN_VALUE)) {
+            throw new IllegalArgumentException("radius is not a whole number of meters: " + radiusMeters);
+        }
+        putLong(wholeMeters);
+    }
+
+    private void putCoordinate(double value, int integerDigits) {
+        long scaled = Math.round(Math.abs(value) * COORDINATE_SCALE);
+        put(value < 0 && scaled != 0 ? '-' : '+');
+        long integerPart = scaled / (long) COORDINATE_SCALE;
+        for (int digits = digitCount(integerPart); digits < integerDigits; digits++) {
+            put('0');
+        }
+        putLong(integerPart);
+        put('.');
+        putFixed(scaled % (long) COORDINATE_SCALE, COORDINATE_DECIMALS);
+    }
+
+    /**
+     * Writes the {@code yyyyMMddHHmmss} form, using the civil from days algorithm of
+     * http://howardhinnant.github.io/date_algorithms.html.
+     */
+    private void putTimestamp(long epochSecond) {
+        long days = Math.floorDiv(epochSecond, SECONDS_PER_DAY);
+        int secondOfDay = (int) Math.floorMod(epochSecond, SECONDS_PER_DAY);
+
+        long shifted = days + DAYS_0000_TO_1970;
+        long era = Math.floorDiv(shifted, DAYS_PER_ERA);
+        int dayOfEra = (int) (shifted - era * DAYS_PER_ERA);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        long year = yearOfEra + era * 400 + (month <= 2 ? 1 : 0);
+        if (year < 0 || year > MAX_YEAR) {
+            throw new IllegalArgumentException("time of positioning out of range: " + epochSecond);
+        }
+
+        putFixed(year, 4);
+        putFixed(month, 2);
+        putFixed(day, 2);
+        putFixed(secondOfDay / 3600, 2);
+        putFixed(secondOfDay / 60 % 60, 2);
+        putFixed(secondOfDay % 60, 2);
+    }
+
+    /**
+     * Writes the digits of a value packed by {@link DigitPacking}, without its leading 1.
+     */
+    private void putPacked(long packed) {
+        int digits = digitCount(packed) - 1;
+        putFixed(packed, digits);
+    }
+
+    private void putInt(int value) {
+        putLong(value);
+    }
+
+    private void putLong(long value) {
+        if (value < 0) {
+            put('-');
+        }
+        int digits = digitCount(value);
+        ensureCapacity(digits);
+        long remaining = value;
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + Math.abs(remaining % 10));
+            remaining /= 10;
+        }
+        position += digits;
+    }
+
+    /**
+     * Writes the lowest digits of a non-negative value, padded with zeros.
+     */
+    private void putFixed(long value, int digits) {
+        ensureCapacity(digits);
+        long remaining = value;
+        for (int i = position + digits - 1; i >= position; i--) {
+            buffer[i] = (byte) ('0' + remaining % 10);
+            remaining /= 10;
+        }
+        position += digits;
+    }
+
+    private void put(char character) {
+        ensureCapacity(1);
+        buffer[position++] = (byte) character;
+    }
+
+    private void ensureCapacity(int additional) {
+        if (position + additional > buffer.length) {
+            buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + additional));
+        }
+    }
+
+    private static boolean has(int present, int attribute) {
+        return (present & attribute) != 0;
+    }
+
+    private static int digitCount(long value) {
+        int digits = 1;
+        for (long remaining = value / 10; remaining != 0; remaining /= 10) {
+            digits++;
+        }
+        return digits;
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.exceptions.AmlValidationException;
+import at.gridgears.aml.validation.Validator;
+
+import java.util.Arrays;
+
+/**
+ * Immutable set of range rules for numeric attributes. Passed to an {@link AmlMessageParser}, the rules run right after
+ * the message has been scanned, in the order they were added, and reject a message before any other value, e.g. the
+ * time of positioning, is decoded. A missing attribute (or a radius of {@code N}) satisfies its rule, except for the
+ * version, which must be present once a version rule is added.
+ * <p>
+ * The same rules can validate already built messages as a {@link Validator}.
+ */
+public final class AmlRules implements Validator<AmlMessage> {
+    /**
+     * No rules, the parser only checks the structure of messages.
+     */
+    public static final AmlRules NONE = new AmlRules(new AttributeName[0], new double[0], new double[0]);
+
+    /**
+     * Version 1 as required by {@link at.gridgears.aml.validation.DefaultValidator}, a level of confidence between 0
+     * and 100 and valid WGS 84 coordinates.
+     */
+    public static final AmlRules STANDARD = NONE.version(1).levelOfConfidence(0, 100).latitude(-90, 90).longitude(-180, 180);
+
+    private static final char NO_RADIUS = 'N';
+
+    private static final String MISSING_VERSION = "unknown interface version: null";
+
+    private final AttributeName[] names;
+
+    private final double[] minimums;
+
+    private final double[] maximums;
+
+    private AmlRules(AttributeName[] names, double[] minimums, double[] maximums) {
+        this.names = names;
+        this.minimums = minimums;
+        this.maximums = maximums;
+    }
+
+    public AmlRules version(int version) {
+        return with(AttributeName.VERSION, version, version);
+    }
+
+    public AmlRules latitude(double minimum, double maximum) {
+        return with(AttributeName.LATITUDE, minimum, maximum);
+    }
+
+    public AmlRules longitude(double minimum, double maximum) {
+        return with(AttributeName.LONGITUDE, minimum, maximum);
+    }
+
+    public AmlRules radiusMeters(double minimum, double maximum) {
+        return with(AttributeName.RADIUS, minimum, maximum);
+    }
+
+    public AmlRules levelOfConfidence(int minimum, int maximum) {
+        return with(AttributeName.LEVEL_OF_CONFIDENCE, minimum, maximum);
+    }
+
+    @Override
+    public AmlMessage validate(AmlMessage candidate) throws AmlValidationException {
+        for (int i = 0; i < names.length; i++) {
+            AttributeName name = names[i];
+            if ((candidate.present() & presence(name)) != 0) {
+                double value = value(candidate, name);
+                if (!inRange(i, value)) {
+                    throw new AmlValidationException(message(i, value));
+                }
+            } else if (name == AttributeName.VERSION) {
+                throw new AmlValidationException(MISSING_VERSION);
+            }
+        }
+        return candidate;
+    }
+
+    /**
+     * Checks the scanned message, recording a {@link ParseError#VALIDATION} error for the first violated rule. The
+     * checked values are kept decoded in the attributes, so building the message does not parse them again.
+     *
+     * @return whether the message satisfies all rules
+     */
+    boolean check(Attributes attributes) {
+        for (int i = 0; i < names.length; i++) {
+            AttributeName name = names[i];
+            if (name == AttributeName.VERSION && !attributes.contains(name)) {
+                attributes.failValidation(MISSING_VERSION);
+                return false;
+            }
+            if (attributes.contains(name) && !(name == AttributeName.RADIUS && attributes.isValue(name, NO_RADIUS))) {
+                double value = isInteger(name) ? attributes.getInt(name) : attributes.getDouble(name);
+                if (attributes.hasError()) {
+                    return false;
+                }
+                if (!inRange(i, value)) {
+                    attributes.failValidation(message(i, value));
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private boolean inRange(int rule, double value) {
+        return value >= minimums[rule] && value <= maximums[rule];
+    }
+
+    private String message(int rule, double value) {
+        AttributeName name = names[rule];
+        if (name == AttributeName.VERSION) {
+            return "unknown interface version: " + (int) value;
+        }
+        if (isInteger(name)) {
+            return name.getText() + " out of range [" + (int) minimums[rule] + ", " + (int) maximums[rule] + "]: " + (int) value;
+        }
+        return name.getText() + " out of range [" + minimums[rule] + ", " + maximums[rule] + "]: " + value;
+    }
+
+    /**
+     * A later rule for the same attribute replaces the earlier one but keeps its position.
+     */
+    private AmlRules with(AttributeName name, double minimum, double maximum) {
+        if (!(minimum <= maximum)) {
+            throw new IllegalArgumentException("invalid range for " + name.getText() + ": [" + minimum + ", " + maximum + "]");
+        }
+        int rule = Arrays.asList(names).indexOf(name);
+        int count = rule < 0 ? names.length + 1 : names.length;
+        if (rule < 0) {
+            rule = names.length;
+        }
+        AttributeName[] newNames = Arrays.copyOf(names, count);
+        double[] newMinimums = Arrays.copyOf(minimums, count);
+        double[] newMaximums = Arrays.copyOf(maximums, count);
+        newNames[rule] = name;
+        newMinimums[rule] = minimum;
+        newMaximums[rule] = maximum;
+        return new AmlRules(newNames, newMinimums, newMaximums);
+    }
+
+    private static boolean isInteger(AttributeName name) {
+        return name == AttributeName.VERSION || name == AttributeName.LEVEL_OF_CONFIDENCE;
+    }
+
+    private static int presence(AttributeName name) {
+        switch (name) {
+            case VERSION:
+                return Presence.VERSION;
+            case LATITUDE:
+                return Presence.LATITUDE;
+            case LONGITUDE:
+                return Presence.LONGITUDE;
+            case RADIUS:
+                return Presence.RADIUS;
+            default:
+                return Presence.LEVEL_OF_CONFIDENCE;
+        }
+    }
+
+    private static double value(AmlMessage message, AttributeName name) {
+        switch (name) {
+            case VERSION:
+                return message.version();
+            case LATITUDE:
+                return message.latitude();
+            case LONGITUDE:
+                return message.longitude();
+            case RADIUS:
+                return message.radiusMeters();
+            default:
+                return message.levelOfConfidence();
+        }
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder("AmlRules[");
+        for (int i = 0; i < names.length; i++) {
+            builder.append(i == 0 ? "" : ", ").append(names[i].getText()).append(" in [").append(minimums[i]).append(", ").append(maximums[i]).append(']');
+        }
+        return builder.append(']').toString();
+    }
+}
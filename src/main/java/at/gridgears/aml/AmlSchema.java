@@ -0,0 +1,168 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Immutable set of {@link AmlExtension extension attributes} a parser accepts in addition to the attributes defined by
+ * AML. Any other attribute is still rejected as {@link ParseError#UNKNOWN_ATTRIBUTE}.
+ * <p>
+ * The keys are compiled into tables indexed by first character and length, so resolving the name of an attribute
+ * that is not part of AML costs a few array reads and one comparison of the candidate key, without creating or
+ * hashing a String. The attributes defined by AML are resolved as before and are not slowed down by extensions.
+ */
+public final class AmlSchema {
+    /**
+     * Extensions share the presence mask of a scanned message with the attributes defined by AML.
+     */
+    public static final int MAX_EXTENSIONS = Long.SIZE - AttributeName.COUNT;
+
+    public static final int MAX_KEY_LENGTH = 32;
+
+    /**
+     * The attributes defined by AML without extensions.
+     */
+    public static final AmlSchema DEFAULT = new AmlSchema(new AmlExtension<?>[0]);
+
+    private static final int KEY_CHARACTERS = 128;
+
+    private final AmlExtension<?>[] extensions;
+
+    /**
+     * Bit i is set in the entry of the first character and in the entry of the length of the key of extension i.
+     */
+    private final long[] byFirstCharacter = new long[KEY_CHARACTERS];
+
+    private final long[] byLength = new long[MAX_KEY_LENGTH + 1];
+
+    private AmlSchema(AmlExtension<?>[] extensions) {
+        this.extensions = extensions;
+        for (int i = 0; i < extensions.length; i++) {
+            String key = extensions[i].getKey();
+            byFirstCharacter[key.charAt(0)] |= 1L << i;
+            byLength[key.length()] |= 1L << i;
+        }
+    }
+
+    /**
+     * @throws IllegalArgumentException if there are more than {@link #MAX_EXTENSIONS} extensions or a key is empty,
+     *                                  longer than {@link #MAX_KEY_LENGTH}, contains characters other than printable
+     *                                  ASCII or the separators {@code ;} and {@code =}, is defined by AML or is
+     *                                  declared twice
+     */
+    public static AmlSchema of(AmlExtension<?>... extensions) {
+        if (extensions.length > MAX_EXTENSIONS) {
+            throw new IllegalArgumentException("at most " + MAX_EXTENSIONS + " extensions are supported but got " + extensions.length);
+        }
+        AmlExtension<?>[] copy = extensions.clone();
+        for (int i = 0; i < copy.length; i++) {
+            String key = copy[i].getKey();
+            checkKey(key);
+            for (int j = 0; j < i; j++) {
+                if (copy[j].getKey().equals(key)) {
+                    throw new IllegalArgumentException("extension key declared twice: " + key);
+                }
+            }
+        }
+        return new AmlSchema(copy);
+    }
+
+    public List<AmlExtension<?>> getExtensions() {
+        return Collections.unmodifiableList(Arrays.asList(extensions));
+    }
+
+    int extensionCount() {
+        return extensions.length;
+    }
+
+    AmlExtension<?> extension(int index) {
+        return extensions[index];
+    }
+
+    /**
+     * @return the index of the extension or -1 if it is not part of this schema
+     */
+    int indexOf(AmlExtension<?> extension) {
+        for (int i = 0; i < extensions.length; i++) {
+            if (extensions[i] == extension) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Resolves the attribute name between start and end to the index of its extension.
+     *
+     * @return the index of the extension or -1 if the name is not the key of one
+     */
+    int indexOf(CharSequence chars, int start, int end) {
+        int length = end - start;
+        if (length == 0 || length > MAX_KEY_LENGTH || chars.charAt(start) >= KEY_CHARACTERS) {
+            return -1;
+        }
+        long candidates = byFirstCharacter[chars.charAt(start)] & byLength[length];
+        while (candidates != 0) {
+            int index = Long.numberOfTrailingZeros(candidates);
+            if (matches(extensions[index].getKey(), chars, start)) {
+                return index;
+            }
+            candidates &= candidates - 1;
+        }
+        return -1;
+    }
+
+    private static boolean matches(String key, CharSequence chars, int start) {
+        for (int i = 1; i < key.length(); i++) {
+            if (key.charAt(i) != chars.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static void checkKey(String key) {
+        if (key.isEmpty() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("extension key must have 1 to " + MAX_KEY_LENGTH + " characters: " + key);
+        }
+        for (int i = 0; i < key.length(); i++) {
+            char character = key.charAt(i);
+            if (character <= ' ' || character >= KEY_CHARACTERS - 1 || character == ';' || character == '=') {
+                throw new IllegalArgumentException("invalid character in extension key: " + key);
+            }
+        }
+        if (AttributeName.of(key, 0, key.length()) != null) {
+            throw new IllegalArgumentException("extension key is defined by AML: " + key);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "AmlSchema" + Arrays.toString(extensions);
+    }
+}
@@ -0,0 +1,347 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.AmlMessageBuilder;
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.validation.DefaultValidator;
+import at.gridgears.aml.validation.Validator;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+/**
+ * Joins the segments of concatenated SMS, identified by the reference number, count and sequence number of their
+ * user data header, and parses the joined message. Segments may arrive in any order, repeated segments are ignored.
+ * <p>
+ * All memory is allocated up front: a fixed number of groups, each with room for a fixed number of segments of a
+ * fixed size. Groups are found by originator and reference number in a hash table of primitive arrays. If all groups
+ * are in use, the group closest to expiry is evicted for a new one. Incomplete groups expire after a timeout, which
+ * is tracked by a timer wheel advanced on every call and by {@link #expire()}, so no task is scheduled per group.
+ * <p>
+ * A reassembler is not thread-safe, the builder is reused for all messages.
+ */
+public final class AmlSegmentReassembler<T> {
+    public static final int DEFAULT_MAX_SEGMENTS = 8;
+
+    /**
+     * The characters of a segment of a concatenated SMS in the GSM 7 bit alphabet.
+     */
+    public static final int DEFAULT_SEGMENT_CAPACITY = 153;
+
+    private static final int WHEEL_SIZE = 64;
+
+    /**
+     * Ticks per timeout, less than the wheel size so a deadline never wraps around the wheel.
+     */
+    private static final int TIMEOUT_TICKS = WHEEL_SIZE / 2;
+
+    private static final int NONE = -1;
+
+    private final AmlMessageParser parser;
+    private final AmlMessageBuilder<T> builder;
+    private final Validator<T> validator;
+    private final Consumer<? super ParseResult<T>> results;
+    private final Attributes attributes;
+    private final LongSupplier clock;
+
+    private final int maxSegments;
+    private final int segmentCapacity;
+    private final long tickNanos;
+
+    private final byte[] segments;
+    private final int[] segmentLengths;
+    private final byte[] joined;
+
+    private final long[] originators;
+    private final int[] references;
+    private final int[] totals;
+    private final long[] received;
+
+    private final int[] hashHeads;
+    private final int[] hashNext;
+    private int freeHead;
+
+    private final int[] wheelHeads = new int[WHEEL_SIZE];
+    private final int[] wheelNext;
+    private final int[] wheelPrev;
+    private final int[] wheelSlots;
+    private long currentTick;
+
+    private long completedCount;
+    private long expiredCount;
+    private long evictedCount;
+    private long duplicateCount;
+    private long rejectedCount;
+
+    public AmlSegmentReassembler(AmlMessageParser parser, AmlMessageBuilder<T> builder, Validator<T> validator, Consumer<? super ParseResult<T>> results, int maxGroups, Duration timeout) {
+        this(parser, builder, validator, results, maxGroups, DEFAULT_MAX_SEGMENTS, DEFAULT_SEGMENT_CAPACITY, timeout);
+    }
+
+    /**
+     * @param maxGroups       the number of messages which can be reassembled at the same time
+     * @param maxSegments     the maximum number of segments of a message, at most 64
+     * @param segmentCapacity the maximum length of a segment
+     * @param timeout         the time after the first segment of a message at which an incomplete message is dropped
+     */
+    public AmlSegmentReassembler(AmlMessageParser parser, AmlMessageBuilder<T> builder, Validator<T> validator, Consumer<? super ParseResult<T>> results, int maxGroups, int maxSegments, int segmentCapacity, Duration timeout) {
+        this(parser, builder, validator, results, maxGroups, maxSegments, segmentCapacity, timeout, System::nanoTime);
+    }
+
+    @SuppressWarnings("PMD.ExcessiveParameterList")
+    AmlSegmentReassembler(AmlMessageParser parser, AmlMessageBuilder<T> builder, Validator<T> validator, Consumer<? super ParseResult<T>> results, int maxGroups, int maxSegments, int segmentCapacity, Duration timeout, LongSupplier clock) {
+        if (maxGroups <= 0 || maxSegments <= 0 || maxSegments > Long.SIZE || segmentCapacity <= 0) {
+            throw new IllegalArgumentException("invalid limits: " + maxGroups + " groups of " + maxSegments + " segments of " + segmentCapacity + " characters");
+        }
+        if (timeout.isNegative() || timeout.isZero()) {
+            throw new IllegalArgumentException("timeout must be positive but was " + timeout);
+        }
+        this.parser = parser;
+        this.builder = builder;
+        this.validator = validator;
+        this.results = results;
+        this.attributes = parser.newAttributes();
+        this.clock = clock;
+
+        this.maxSegments = maxSegments;
+        this.segmentCapacity = segmentCapacity;
+        this.tickNanos = Math.max(1, timeout.toNanos() / TIMEOUT_TICKS);
+
+        this.segments = new byte[maxGroups * maxSegments * segmentCapacity];
+        this.segmentLengths = new int[maxGroups * maxSegments];
+        this.joined = new byte[maxSegments * segmentCapacity];
+
+        this.originators = new long[maxGroups];
+        this.references = new int[maxGroups];
+        this.totals = new int[maxGroups];
+        this.received = new long[maxGroups];
+
+        this.hashHeads = new int[Integer.highestOneBit(maxGroups * 2 - 1) * 2];
+        Arrays.fill(hashHeads, NONE);
+        this.hashNext = new int[maxGroups];
+        for (int i = 0; i < maxGroups; i++) {
+            hashNext[i] = i + 1 < maxGroups ? i + 1 : NONE;
+        }
+        this.freeHead = 0;
+
+        Arrays.fill(wheelHeads, NONE);
+        this.wheelNext = new int[maxGroups];
+        this.wheelPrev = new int[maxGroups];
+        this.wheelSlots = new int[maxGroups];
+        this.currentTick = Math.floorDiv(clock.getAsLong(), tickNanos);
+    }
+
+    public static AmlSegmentReassembler<AmlMessage> newAdvancedMobileLocationReassembler(Consumer<? super ParseResult<AmlMessage>> results, int maxGroups, Duration timeout) {
+        return new AmlSegmentReassembler<>(new AmlMessageParser(), DefaultAmlMessageBuilder.newAdvancedMobileLocation(), DefaultValidator.INSTANCE, results, maxGroups, timeout);
+    }
+
+    /**
+     * Adds a segment, parsing the message once all its segments have been received. A message of a single segment is
+     * parsed right away.
+     *
+     * @param originator identifies the sender, e.g. the digits of its number
+     * @param reference  the concatenated short message reference number of the user data header
+     * @param total      the number of segments of the message
+     * @param sequence   the one based sequence number of the segment
+     * @return whether the segment was accepted, segments with a count or sequence number out of range or exceeding
+     * the segment capacity are rejected
+     */
+    public boolean accept(long originator, int reference, int total, int sequence, byte[] payload, int offset, int length) {
+        expire();
+        if (total < 1 || total > maxSegments || sequence < 1 || sequence > total || length < 0 || length > segmentCapacity) {
+            rejectedCount++;
+            return false;
+        }
+        if (total == 1) {
+            completedCount++;
+            results.accept(parser.tryParse(new ByteArrayCharSequence(payload, offset, length), attributes, builder, validator));
+            return true;
+        }
+
+        int group = find(originator, reference);
+        if (group == NONE) {
+            group = allocate(originator, reference, total);
+        } else if (totals[group] != total) {
+            rejectedCount++;
+            return false;
+        }
+
+        long bit = 1L << (sequence - 1);
+        if ((received[group] & bit) != 0) {
+            duplicateCount++;
+            return true;
+        }
+        received[group] |= bit;
+        int segment = group * maxSegments + sequence - 1;
+        System.arraycopy(payload, offset, segments, segment * segmentCapacity, length);
+        segmentLengths[segment] = length;
+
+        if (Long.bitCount(received[group]) == total) {
+            complete(group);
+        }
+        return true;
+    }
+
+    public boolean accept(long originator, int reference, int total, int sequence, byte[] payload) {
+        return accept(originator, reference, total, sequence, payload, 0, payload.length);
+    }
+
+    /**
+     * Drops the incomplete messages whose timeout has passed. Called by {@link #accept}, senders with long pauses
+     * between segments should call it periodically as well.
+     */
+    public void expire() {
+        long tick = Math.floorDiv(clock.getAsLong(), tickNanos);
+        // after a full turn every remaining deadline has passed
+        long ticks = Math.min(tick - currentTick, WHEEL_SIZE);
+        for (long i = 1; i <= ticks; i++) {
+            int slot = (int) (currentTick + i) & WHEEL_SIZE - 1;
+            while (wheelHeads[slot] != NONE) {
+                expiredCount++;
+                release(wheelHeads[slot]);
+            }
+        }
+        currentTick = Math.max(currentTick, tick);
+    }
+
+    public long getCompletedCount() {
+        return completedCount;
+    }
+
+    public long getExpiredCount() {
+        return expiredCount;
+    }
+
+    /**
+     * @return the number of incomplete messages dropped to make room for new ones
+     */
+    public long getEvictedCount() {
+        return evictedCount;
+    }
+
+    public long getDuplicateCount() {
+        return duplicateCount;
+    }
+
+    public long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    private void complete(int group) {
+        int length = 0;
+        for (int segment = group * maxSegments; segment < group * maxSegments + totals[group]; segment++) {
+            System.arraycopy(segments, segment * segmentCapacity, joined, length, segmentLengths[segment]);
+            length += segmentLengths[segment];
+        }
+        release(group);
+        completedCount++;
+        results.accept(parser.tryParse(new ByteArrayCharSequence(joined, 0, length), attributes, builder, validator));
+    }
+
+    private int find(long originator, int reference) {
+        for (int group = hashHeads[hash(originator, reference)]; group != NONE; group = hashNext[group]) {
+            if (originators[group] == originator && references[group] == reference) {
+                return group;
+            }
+        }
+        return NONE;
+    }
+
+    private int allocate(long originator, int reference, int total) {
+        if (freeHead == NONE) {
+            evictedCount++;
+            release(oldest());
+        }
+        int group = freeHead;
+        freeHead = hashNext[group];
+
+        originators[group] = originator;
+        references[group] = reference;
+        totals[group] = total;
+        received[group] = 0;
+
+        int bucket = hash(originator, reference);
+        hashNext[group] = hashHeads[bucket];
+        hashHeads[bucket] = group;
+
+        int slot = (int) (currentTick + TIMEOUT_TICKS + 1) & WHEEL_SIZE - 1;
+        wheelSlots[group] = slot;
+        wheelPrev[group] = NONE;
+        wheelNext[group] = wheelHeads[slot];
+        if (wheelHeads[slot] != NONE) {
+            wheelPrev[wheelHeads[slot]] = group;
+        }
+        wheelHeads[slot] = group;
+        return group;
+    }
+
+    /**
+     * @return a group of the slot which expires next
+     */
+    private int oldest() {
+        for (int i = 1; i <= WHEEL_SIZE; i++) {
+            int slot = (int) (currentTick + i) & WHEEL_SIZE - 1;
+            if (wheelHeads[slot] != NONE) {
+                return wheelHeads[slot];
+            }
+        }
+        throw new IllegalStateException("no group in use");
+    }
+
+    /**
+     * Removes the group from hash table and wheel and returns it to the free list.
+     */
+    private void release(int group) {
+        int bucket = hash(originators[group], references[group]);
+        if (hashHeads[bucket] == group) {
+            hashHeads[bucket] = hashNext[group];
+        } else {
+            int previous = hashHeads[bucket];
+            while (hashNext[previous] != group) {
+                previous = hashNext[previous];
+            }
+            hashNext[previous] = hashNext[group];
+        }
+
+        if (wheelPrev[group] == NONE) {
+            wheelHeads[wheelSlots[group]] = wheelNext[group];
+        } else {
+            wheelNext[wheelPrev[group]] = wheelNext[group];
+        }
+        if (wheelNext[group] != NONE) {
+            wheelPrev[wheelNext[group]] = wheelPrev[group];
+        }
+
+        hashNext[group] = freeHead;
+        freeHead = group;
+    }
+
+    private int hash(long originator, int reference) {
+        long hash = (originator * 31 + reference) * 0x9E3779B97F4A7C15L;
+        return (int) (hash >>> 32) & hashHeads.length - 1;
+    }
+}
@@ -24,37 +24,31 @@
 
 package at.gridgears.aml;
 
-import java.text.ParseException;
-import java.text.SimpleDateFormat;
 import java.time.Instant;
-import java.util.TimeZone;
 
+/**
+ * View on a single attribute value of a message. The instance is re-pointed by {@link Attributes} for every
+ * attribute that is read, so values are only materialized on request.
+ */
 class Attribute {
-    private static final String SEPARATOR = "=";
-    private static final String DATE_FORMAT = "yyyyMMddHHmmss";
     private static final PositioningMethodMapper POSITIONING_METHOD_MAPPER = new PositioningMethodMapper();
 
-    private final String name;
-    private final String value;
-
-    private Attribute(String name, String value) {
-        this.name = name;
-        this.value = value;
-    }
+    static final long INVALID_INT = Long.MIN_VALUE;
 
-    static Attribute create(String input) {
-        String[] attribute = input.split(SEPARATOR);
+    private String name;
+    private CharSequence message;
+    private int start;
+    private int end;
 
-        String name = attribute[0];
-
-        String value;
-        if (attribute.length > 1) {
-            value = attribute[1];
-        } else {
-            value = null;
-        }
+    Attribute() {
+        set("", "", 0, 0);
+    }
 
-        return new Attribute(name, value);
+    final void set(String name, CharSequence message, int start, int end) {
+        this.name = name;
+        this.message = message;
+        this.start = start;
+        this.end = end;
     }
 
     String getName() {
@@ -62,40 +56,94 @@ class Attribute {
     }
 
     String getStringValue() {
-        return value;
+        return start < end ? message.subSequence(start, end).toString() : null;
     }
 
     Integer getIntegerValue() {
-        try {
-            return Integer.parseInt(value);
-        } catch (NumberFormatException e) {
-            return null;
+        long value = intValue();
+        return value == INVALID_INT ? null : Integer.valueOf((int) value);
+    }
+
+    /**
+     * @return the value as int or {@link #INVALID_INT} if it is not a valid integer
+     */
+    long intValue() {
+        return intValue(message, start, end);
+    }
+
+    /**
+     * @return the characters between start and end as int or {@link #INVALID_INT} if they are not a valid integer
+     */
+    static long intValue(CharSequence chars, int start, int end) {
+        if (start >= end) {
+            return INVALID_INT;
+        }
+
+        boolean negative = false;
+        int position = start;
+        char first = chars.charAt(position);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            position++;
+            if (position == end) {
+                return INVALID_INT;
+            }
         }
+
+        // accumulate negatively to cover Integer.MIN_VALUE, like Integer.parseInt
+        int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+        int result = 0;
+        for (; position < end; position++) {
+            int digit = chars.charAt(position) - '0';
+            if (digit < 0 || digit > 9 || result < limit / 10) {
+                return INVALID_INT;
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                return INVALID_INT;
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
     }
 
     Double getDoubleValue() {
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            return null;
-        }
+        double value = doubleValue();
+        return Double.isNaN(value) ? null : Double.valueOf(value);
+    }
+
+    /**
+     * @return the value as double or {@link Double#NaN} if it is not a valid number
+     */
+    double doubleValue() {
+        return DecimalParser.parse(message, start, end);
+    }
+
+    boolean isValue(char value) {
+        return end - start == 1 && message.charAt(start) == value;
     }
 
     Instant getInstantValue() {
-        SimpleDateFormat format = new SimpleDateFormat(DATE_FORMAT);
-        format.setTimeZone(TimeZone.getTimeZone("UTC"));
-        try {
-            return format.parse(value).toInstant();
-        } catch (ParseException e) {
-            return null;
-        }
+        long epochSecond = epochSecondValue(TimestampParser.UNCACHED);
+        return epochSecond == TimestampParser.INVALID ? null : Instant.ofEpochSecond(epochSecond);
+    }
+
+    /**
+     * @return the {@code yyyyMMddHHmmss} value as epoch second or {@link TimestampParser#INVALID}
+     */
+    long epochSecondValue(TimestampParser timestampParser) {
+        return timestampParser.parseEpochSecond(message, start, end);
     }
 
+    /**
+     * @return the positioning method or {@code null} if the value is not a known single letter
+     */
     PositioningMethod getPositioningMethod() {
-        try {
-            return POSITIONING_METHOD_MAPPER.get(value);
-        } catch (IllegalArgumentException e) {
-            return null;
-        }
+        return end - start == 1 ? POSITIONING_METHOD_MAPPER.find(message.charAt(start)) : null;
+    }
+
+    @Override
+    public String toString() {
+        return name + '=' + (start < end ? message.subSequence(start, end).toString() : "");
     }
 }
@@ -0,0 +1,141 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import java.util.Set;
+
+/**
+ * The attributes defined by AML. Sets of attributes, e.g. the ones a
+ * {@link at.gridgears.aml.builder.SelectiveAmlMessageBuilder#consumedAttributes() builder consumes}, are passed as masks which
+ * combine the {@link #mask()} of each attribute with {@code |} or {@link #maskOf(Set)}.
+ */
+// the ordinal is the slot of the attribute in Attributes and the mask its bit in the presence mask of a scanned message
+public enum AttributeName {
+    VERSION("A\"ML"),
+    LATITUDE("lt"),
+    LONGITUDE("lg"),
+    RADIUS("rd"),
+    TIME_OF_POSITIONING("top"),
+    LEVEL_OF_CONFIDENCE("lc"),
+    POSITIONING_METHOD("pm"),
+    IMSI("si"),
+    IMEI("ei"),
+    MCC("mcc"),
+    MNC("mnc"),
+    LENGTH("ml");
+
+    static final int COUNT = values().length;
+
+    /**
+     * The mask of all attributes.
+     */
+    public static final long ALL = (1L << COUNT) - 1;
+
+    private final String text;
+
+    private final long mask;
+
+    AttributeName(String text) {
+        this.text = text;
+        this.mask = 1L << ordinal();
+    }
+
+    /**
+     * @return the name of the attribute in a message, e.g. {@code lt}
+     */
+    public String getText() {
+        return text;
+    }
+
+    public long mask() {
+        return mask;
+    }
+
+    public static long maskOf(Set<AttributeName> attributeNames) {
+        long mask = 0;
+        for (AttributeName attributeName : attributeNames) {
+            mask |= attributeName.mask;
+        }
+        return mask;
+    }
+
+    /**
+     * Resolves the attribute name between start and end by its length and characters without creating or hashing a
+     * String.
+     *
+     * @return the attribute or {@code null} if the name is not a known one
+     */
+    @SuppressWarnings("PMD.CyclomaticComplexity")
+    static AttributeName of(CharSequence chars, int start, int end) {
+        AttributeName attributeName;
+        switch (end - start) {
+            case 2:
+                attributeName = ofTwoCharacters(chars.charAt(start), chars.charAt(start + 1));
+                break;
+            case 3:
+                attributeName = ofThreeCharacters(chars.charAt(start), chars.charAt(start + 1), chars.charAt(start + 2));
+                break;
+            case 4:
+                attributeName = chars.charAt(start) == 'A' && chars.charAt(start + 1) == '"' && chars.charAt(start + 2) == 'M' && chars.charAt(start + 3) == 'L' ? VERSION : null;
+                break;
+            default:
+                attributeName = null;
+        }
+        return attributeName;
+    }
+
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity"})
+    private static AttributeName ofTwoCharacters(char first, char second) {
+        switch (first) {
+            case 'l':
+                return second == 't' ? LATITUDE : second == 'g' ? LONGITUDE : second == 'c' ? LEVEL_OF_CONFIDENCE : null;
+            case 'r':
+                return second == 'd' ? RADIUS : null;
+            case 'p':
+                return second == 'm' ? POSITIONING_METHOD : null;
+            case 's':
+                return second == 'i' ? IMSI : null;
+            case 'e':
+                return second == 'i' ? IMEI : null;
+            case 'm':
+                return second == 'l' ? LENGTH : null;
+            default:
+                return null;
+        }
+    }
+
+    private static AttributeName ofThreeCharacters(char first, char second, char third) {
+        if (first == 't') {
+            return second == 'o' && third == 'p' ? TIME_OF_POSITIONING : null;
+        }
+        if (first == 'm' && second == 'c') {
+            return third == 'c' ? MCC : null;
+        }
+        if (first == 'm' && second == 'n') {
+            return third == 'c' ? MNC : null;
+        }
+        return null;
+    }
+}
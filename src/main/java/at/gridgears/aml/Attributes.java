@@ -25,51 +25,425 @@
 package at.gridgears.aml;
 
 
+import at.gridgears.aml.builder.AmlMessageBuilder;
 import at.gridgears.aml.exceptions.AmlParseException;
 
-import java.util.*;
+import java.util.LinkedHashSet;
+import java.util.Set;
 import java.util.function.Function;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 final class Attributes {
-    private static final List<String> KNOWN_ATTRIBUTE_NAMES = Arrays.asList("A\"ML", "lt", "lg", "rd", "top", "lc", "pm", "si", "ei", "mcc", "mnc", "ml");
+    private static final char ATTRIBUTE_SEPARATOR = ';';
 
-    private static final String ATTRIBUTE_SEPARATOR = ";";
+    private static final char VALUE_SEPARATOR = '=';
 
-    private final Map<String, Attribute> attributes;
+    private static final int UNKNOWN = -1;
 
-    private Attributes(Map<String, Attribute> attributes) {
-        this.attributes = Collections.unmodifiableMap(new HashMap<>(attributes));
+    private static final AttributeName[] ATTRIBUTE_NAMES = AttributeName.values();
+
+    private final AmlSchema schema;
+
+    private CharSequence message;
+
+    /**
+     * Value start and end offsets into the message, two entries per slot, valid only for the slots set in
+     * {@link #present}. The attributes defined by AML take the slots of their {@link AttributeName#ordinal() ordinal},
+     * the extensions of the schema follow in schema order.
+     */
+    private final int[] offsets;
+
+    /**
+     * One bit per slot of an attribute contained in the message, {@link AttributeName#mask()} for the attributes
+     * defined by AML.
+     */
+    private long present;
+
+    /**
+     * Decoded extension values of the last message, filled by {@link #decodeExtensions()}.
+     */
+    private final Object[] extensionValues;
+
+    /**
+     * Numeric values of the attributes defined by AML decoded by {@link #getInt(AttributeName)} or
+     * {@link #getDouble(AttributeName)}, valid only for the slots set in {@link #decoded}.
+     */
+    private final double[] numbers = new double[AttributeName.COUNT];
+
+    private long decoded;
+
+    private final Attribute attribute = new Attribute();
+
+    private int firstUnknownOffset = -1;
+
+    private ParseError error;
+
+    private int errorSlot;
+
+    private int errorOffset;
+
+    private String validationMessage;
+
+    Attributes() {
+        this(AmlSchema.DEFAULT);
     }
 
-    static Attributes parse(String message) {
-        Map<String, Attribute> attributes = Stream.of(message.split(ATTRIBUTE_SEPARATOR)).map(Attribute::create).collect(Collectors.toMap(Attribute::getName, Function.identity(), (first, latest) -> latest));
-        return new Attributes(attributes);
+    Attributes(AmlSchema schema) {
+        this.schema = schema;
+        this.message = "";
+        this.offsets = new int[(AttributeName.COUNT + schema.extensionCount()) * 2];
+        this.extensionValues = new Object[schema.extensionCount()];
     }
 
-    void check() throws AmlParseException {
-        if (!KNOWN_ATTRIBUTE_NAMES.containsAll(attributes.keySet())) {
-            Set<String> unknownAttributes = new HashSet<>(attributes.keySet());
-            unknownAttributes.removeAll(KNOWN_ATTRIBUTE_NAMES);
+    static Attributes parse(CharSequence message) {
+        Attributes attributes = new Attributes();
+        attributes.scan(message);
+        return attributes;
+    }
+
+    /**
+     * Scans the message, replacing all state of a previous scan, so a single instance can be reused by one thread.
+     */
+    void scan(CharSequence message) {
+        this.message = message;
+        present = 0;
+        decoded = 0;
+        firstUnknownOffset = -1;
+        error = null;
+        validationMessage = null;
 
-            throw new AmlParseException("unknown attributes " + unknownAttributes);
+        int end = trimTrailingSeparators(message);
+        int position = 0;
+        while (position < end) {
+            int attributeEnd = indexOf(message, ATTRIBUTE_SEPARATOR, position, end);
+            add(position, attributeEnd);
+            position = attributeEnd + 1;
         }
     }
 
-    <T> T get(String attributeName, Function<Attribute, T> function) throws AmlParseException {
-        Attribute attribute = attributes.get(attributeName);
+    /**
+     * Records a {@link ParseError#MESSAGE_LENGTH} error unless the ml attribute matches the actual length.
+     */
+    void checkLength(int actualLength) {
+        if (!contains(AttributeName.LENGTH)) {
+            fail(ParseError.MESSAGE_LENGTH, AttributeName.LENGTH.ordinal(), -1);
+        } else if (getInt(AttributeName.LENGTH) != actualLength && !hasError()) {
+            fail(ParseError.MESSAGE_LENGTH, AttributeName.LENGTH.ordinal(), offsets[AttributeName.LENGTH.ordinal() * 2]);
+        }
+    }
+
+    /**
+     * Records a {@link ParseError#UNKNOWN_ATTRIBUTE} error if the message contains attributes other than the known
+     * ones.
+     */
+    void check() {
+        if (firstUnknownOffset >= 0) {
+            fail(ParseError.UNKNOWN_ATTRIBUTE, UNKNOWN, firstUnknownOffset);
+        }
+    }
 
+    /**
+     * Treats all attributes except the given ones and the length as missing, so their values are not decoded.
+     * Extensions are kept.
+     */
+    void project(long attributeNames) {
+        present &= attributeNames | AttributeName.LENGTH.mask() | ~AttributeName.ALL;
+    }
+
+    /**
+     * @return the value, {@code null} if the attribute is missing or {@code null} with a recorded
+     * {@link ParseError#INVALID_VALUE} error if it cannot be parsed
+     */
+    <T> T get(AttributeName name, Function<Attribute, T> function) {
         T result;
 
-        if (attribute != null) {
-            result = function.apply(attribute);
+        if (contains(name)) {
+            result = function.apply(attribute(name));
             if (result == null) {
-                throw new AmlParseException("Could not parse " + attribute);
+                fail(ParseError.INVALID_VALUE, name.ordinal(), offsets[name.ordinal() * 2]);
             }
         } else {
             result = null;
         }
         return result;
     }
+
+    /**
+     * Applies the function to a present attribute without recording an error, so callers decoding single values on
+     * demand can report each failure on its own.
+     */
+    <T> T decode(AttributeName name, Function<Attribute, T> function) {
+        return function.apply(attribute(name));
+    }
+
+    AmlParseException invalidValue(AttributeName name) {
+        return new AmlParseException("Could not parse " + attribute(name));
+    }
+
+    boolean contains(AttributeName name) {
+        return (present & name.mask()) != 0;
+    }
+
+    /**
+     * @return whether the attribute is present and consists of exactly the given character
+     */
+    boolean isValue(AttributeName name, char value) {
+        return contains(name) && attribute(name).isValue(value);
+    }
+
+    /**
+     * Reads a present attribute as int without boxing, recording an error if it cannot be parsed. The value is decoded
+     * only once per scan.
+     */
+    int getInt(AttributeName name) {
+        if ((decoded & name.mask()) != 0) {
+            return (int) numbers[name.ordinal()];
+        }
+        long value = attribute(name).intValue();
+        if (value == Attribute.INVALID_INT) {
+            fail(ParseError.INVALID_VALUE, name.ordinal(), offsets[name.ordinal() * 2]);
+            return 0;
+        }
+        remember(name, value);
+        return (int) value;
+    }
+
+    /**
+     * Reads a present attribute as double without boxing, recording an error if it cannot be parsed. The value is
+     * decoded only once per scan.
+     */
+    double getDouble(AttributeName name) {
+        if ((decoded & name.mask()) != 0) {
+            return numbers[name.ordinal()];
+        }
+        double value = attribute(name).doubleValue();
+        if (Double.isNaN(value)) {
+            fail(ParseError.INVALID_VALUE, name.ordinal(), offsets[name.ordinal() * 2]);
+        } else {
+            remember(name, value);
+        }
+        return value;
+    }
+
+    private void remember(AttributeName name, double value) {
+        numbers[name.ordinal()] = value;
+        decoded |= name.mask();
+    }
+
+    /**
+     * Reads a present {@code yyyyMMddHHmmss} attribute as epoch second, recording an error if it cannot be parsed.
+     */
+    long getEpochSecond(AttributeName name, TimestampParser timestampParser) {
+        long value = attribute(name).epochSecondValue(timestampParser);
+        if (value == TimestampParser.INVALID) {
+            fail(ParseError.INVALID_VALUE, name.ordinal(), offsets[name.ordinal() * 2]);
+        }
+        return value;
+    }
+
+    /**
+     * Decodes the values of all extensions of the schema, recording an error for the first one that cannot be
+     * decoded. Missing extensions are {@code null}.
+     */
+    void decodeExtensions() {
+        for (int i = 0; i < extensionValues.length; i++) {
+            int slot = AttributeName.COUNT + i;
+            Object value = null;
+            if ((present & 1L << slot) != 0) {
+                value = schema.extension(i).decode(message.subSequence(offsets[slot * 2], offsets[slot * 2 + 1]));
+                if (value == null) {
+                    fail(ParseError.INVALID_VALUE, slot, offsets[slot * 2]);
+                }
+            }
+            extensionValues[i] = value;
+        }
+    }
+
+    /**
+     * Passes the values decoded by {@link #decodeExtensions()} to the builder.
+     */
+    <T> void setExtensions(AmlMessageBuilder<T> builder) {
+        for (int i = 0; i < extensionValues.length; i++) {
+            setExtension(builder, schema.extension(i), extensionValues[i]);
+        }
+    }
+
+    /**
+     * Decodes a single extension value on demand.
+     *
+     * @return the value or {@code null} if the extension is missing
+     * @throws IllegalArgumentException if the extension is not part of the schema
+     * @throws AmlParseException        if the value cannot be decoded
+     */
+    <V> V decodeExtension(AmlExtension<V> extension) throws AmlParseException {
+        int index = schema.indexOf(extension);
+        if (index < 0) {
+            throw new IllegalArgumentException("extension " + extension + " is not part of " + schema);
+        }
+        int slot = AttributeName.COUNT + index;
+        if ((present & 1L << slot) == 0) {
+            return null;
+        }
+        V value = extension.decode(message.subSequence(offsets[slot * 2], offsets[slot * 2 + 1]));
+        if (value == null) {
+            throw new AmlParseException("Could not parse " + attribute(slot));
+        }
+        return value;
+    }
+
+    boolean hasError() {
+        return error != null;
+    }
+
+    ParseError getError() {
+        return error;
+    }
+
+    /**
+     * @return the name of the attribute which caused the error or {@code null} if it is not a known one
+     */
+    String getErrorAttribute() {
+        return errorSlot == UNKNOWN ? null : nameOf(errorSlot);
+    }
+
+    int getErrorOffset() {
+        return errorOffset;
+    }
+
+    /**
+     * @return the message of a {@link ParseError#VALIDATION} error or {@code null}
+     */
+    String getValidationMessage() {
+        return validationMessage;
+    }
+
+    /**
+     * Records a {@link ParseError#VALIDATION} error for the otherwise successfully parsed message.
+     */
+    void failValidation(String message) {
+        fail(ParseError.VALIDATION, UNKNOWN, -1);
+        validationMessage = message;
+    }
+
+    <T> ParseResult<T> toResult() {
+        return error == ParseError.VALIDATION ? ParseResult.invalid(validationMessage) : ParseResult.failure(error, getErrorAttribute(), errorOffset);
+    }
+
+    AmlParseException toException() {
+        return new AmlParseException(getErrorMessage());
+    }
+
+    /**
+     * @return the description of the recorded error as used for exceptions
+     */
+    String getErrorMessage() {
+        String message;
+        switch (error) {
+            case MESSAGE_LENGTH:
+                message = "expected message length " + (errorOffset < 0 ? null : getInt(AttributeName.LENGTH)) + " but was " + this.message.length();
+                break;
+            case UNKNOWN_ATTRIBUTE:
+                message = "unknown attributes " + collectUnknownAttributes();
+                break;
+            case VALIDATION:
+                message = validationMessage;
+                break;
+            default:
+                message = "Could not parse " + attribute(errorSlot);
+        }
+        return message;
+    }
+
+    /**
+     * Only the first error is kept, subsequent ones are consequences or less relevant.
+     */
+    private void fail(ParseError error, int slot, int offset) {
+        if (this.error == null) {
+            this.error = error;
+            this.errorSlot = slot;
+            this.errorOffset = offset;
+        }
+    }
+
+    private Attribute attribute(AttributeName name) {
+        int slot = name.ordinal();
+        attribute.set(name.getText(), message, offsets[slot * 2], offsets[slot * 2 + 1]);
+        return attribute;
+    }
+
+    private Attribute attribute(int slot) {
+        attribute.set(nameOf(slot), message, offsets[slot * 2], offsets[slot * 2 + 1]);
+        return attribute;
+    }
+
+    private String nameOf(int slot) {
+        return slot < AttributeName.COUNT ? ATTRIBUTE_NAMES[slot].getText() : schema.extension(slot - AttributeName.COUNT).getKey();
+    }
+
+    private void add(int start, int end) {
+        int nameEnd = indexOf(message, VALUE_SEPARATOR, start, end);
+        int slot = slotOf(start, nameEnd);
+
+        if (slot == UNKNOWN) {
+            if (firstUnknownOffset < 0) {
+                firstUnknownOffset = start;
+            }
+        } else {
+            // a later occurrence of the same attribute replaces the earlier one
+            offsets[slot * 2] = Math.min(nameEnd + 1, end);
+            offsets[slot * 2 + 1] = end;
+            present |= 1L << slot;
+        }
+    }
+
+    /**
+     * The attributes defined by AML are resolved first, so extensions are only looked up for the remaining names.
+     */
+    private int slotOf(int start, int end) {
+        AttributeName name = AttributeName.of(message, start, end);
+        if (name != null) {
+            return name.ordinal();
+        }
+        int extension = schema.indexOf(message, start, end);
+        return extension < 0 ? UNKNOWN : AttributeName.COUNT + extension;
+    }
+
+    private Set<String> collectUnknownAttributes() {
+        Set<String> unknown = new LinkedHashSet<>();
+
+        int end = trimTrailingSeparators(message);
+        int position = 0;
+        while (position < end) {
+            int attributeEnd = indexOf(message, ATTRIBUTE_SEPARATOR, position, end);
+            int nameEnd = indexOf(message, VALUE_SEPARATOR, position, attributeEnd);
+            if (slotOf(position, nameEnd) == UNKNOWN) {
+                unknown.add(message.subSequence(position, nameEnd).toString());
+            }
+            position = attributeEnd + 1;
+        }
+        return unknown;
+    }
+
+    private static <T, V> void setExtension(AmlMessageBuilder<T> builder, AmlExtension<V> extension, Object value) {
+        builder.extension(extension, extension.getType().cast(value));
+    }
+
+    /**
+     * Trailing separators do not form (empty) attributes, consistent with {@link String#split(String)}.
+     */
+    private static int trimTrailingSeparators(CharSequence message) {
+        int end = message.length();
+        while (end > 0 && message.charAt(end - 1) == ATTRIBUTE_SEPARATOR) {
+            end--;
+        }
+        return end;
+    }
+
+    private static int indexOf(CharSequence message, char character, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if (message.charAt(i) == character) {
+                return i;
+            }
+        }
+        return end;
+    }
 }
@@ -0,0 +1,102 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Results of {@link AmlMessageParser#parseAll}, stored in arrays which are allocated once for the whole batch. The
+ * index of a result is the index of its message.
+ */
+public final class BatchResult<T> {
+    private final Object[] values;
+    private final ParseError[] errors;
+    private final String[] errorAttributes;
+    private final int[] errorOffsets;
+    private final String[] errorMessages;
+
+    BatchResult(int size) {
+        this.values = new Object[size];
+        this.errors = new ParseError[size];
+        this.errorAttributes = new String[size];
+        this.errorOffsets = new int[size];
+        this.errorMessages = new String[size];
+    }
+
+    public int size() {
+        return values.length;
+    }
+
+    public boolean isSuccess(int index) {
+        return errors[index] == null;
+    }
+
+    /**
+     * @return the built value or {@code null} if the message could not be parsed
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int index) {
+        return (T) values[index];
+    }
+
+    /**
+     * @return the error or {@code null} if the message was parsed
+     */
+    public ParseError getError(int index) {
+        return errors[index];
+    }
+
+    /**
+     * @return the result of a single message as {@link ParseResult}, which is created on each call
+     */
+    public ParseResult<T> getResult(int index) {
+        if (errors[index] == null) {
+            return ParseResult.success(get(index));
+        }
+        if (errors[index] == ParseError.VALIDATION) {
+            return ParseResult.invalid(errorMessages[index]);
+        }
+        return ParseResult.failure(errors[index], errorAttributes[index], errorOffsets[index]);
+    }
+
+    public int getErrorCount() {
+        int count = 0;
+        for (ParseError error : errors) {
+            if (error != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    void set(int index, T value) {
+        values[index] = value;
+    }
+
+    void fail(int index, ParseError error, String attribute, int offset, String message) {
+        errors[index] = error;
+        errorAttributes[index] = attribute;
+        errorOffsets[index] = offset;
+        errorMessages[index] = message;
+    }
+}
@@ -0,0 +1,277 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlParseException;
+import at.gridgears.aml.exceptions.AmlValidationException;
+import at.gridgears.aml.validation.DefaultValidator;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Remembers the outcome of parsing recent messages, so identical messages, e.g. the retransmissions of an emergency
+ * SMS or the same text handed to several consumers, are parsed only once. Messages are parsed by the wrapped parser
+ * with a {@link DefaultAmlMessageBuilder} and the {@link DefaultValidator}, the resulting {@link AmlMessage} is
+ * immutable and shared by all callers. Malformed and invalid messages are remembered as well. The exception of a
+ * message parsed by this call has a stack trace, the exceptions answered from the cache are created without one.
+ * <p>
+ * The cache holds a fixed number of messages in stripes which are locked independently. Each stripe is divided into
+ * buckets of a few entries which are replaced in CLOCK order: an entry read since the hand passed it last gets a
+ * second chance, so messages which keep arriving stay cached while one-off messages are evicted first.
+ * <p>
+ * The parser is safe for concurrent use.
+ */
+public final class CachingAmlMessageParser {
+    private static final int WAYS = 8;
+
+    private static final int MAX_STRIPES = 64;
+
+    private final AmlMessageParser parser;
+
+    private final Stripe[] stripes;
+
+    private final int bucketMask;
+
+    private final LongAdder hits = new LongAdder();
+
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * @param capacity the number of messages to remember, rounded up to a power of two
+     */
+    public CachingAmlMessageParser(AmlMessageParser parser, int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive but was " + capacity);
+        }
+        int entries = Math.max(WAYS, Integer.highestOneBit(Math.min(capacity, 1 << 30) * 2 - 1));
+        int stripeCount = Math.min(MAX_STRIPES, entries / WAYS);
+        int bucketsPerStripe = entries / WAYS / stripeCount;
+
+        this.parser = parser;
+        this.stripes = new Stripe[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(bucketsPerStripe);
+        }
+        this.bucketMask = bucketsPerStripe - 1;
+    }
+
+    /**
+     * @see AmlMessageParser#parse(CharSequence)
+     */
+    public AmlMessage parse(CharSequence message) throws AmlParseException, AmlValidationException {
+        int hash = hash(message);
+        Outcome outcome = cached(message, hash);
+        boolean parsed = outcome == null;
+        if (parsed) {
+            outcome = parseAndCache(message, hash);
+        }
+        if (outcome.result.isSuccess()) {
+            return outcome.result.getValue();
+        }
+        if (outcome.result.getError() == ParseError.VALIDATION) {
+            throw new AmlValidationException(outcome.exceptionMessage, parsed);
+        }
+        throw new AmlParseException(outcome.exceptionMessage, parsed);
+    }
+
+    public AmlMessage parse(byte[] message, int offset, int length) throws AmlParseException, AmlValidationException {
+        return parse(new ByteArrayCharSequence(message, offset, length));
+    }
+
+    /**
+     * @see AmlMessageParser#tryParse(CharSequence)
+     */
+    public ParseResult<AmlMessage> tryParse(CharSequence message) {
+        int hash = hash(message);
+        Outcome outcome = cached(message, hash);
+        return (outcome == null ? parseAndCache(message, hash) : outcome).result;
+    }
+
+    public ParseResult<AmlMessage> tryParse(byte[] message, int offset, int length) {
+        return tryParse(new ByteArrayCharSequence(message, offset, length));
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return the maximum number of remembered messages
+     */
+    public int getCapacity() {
+        return stripes.length * stripes[0].keys.length;
+    }
+
+    /**
+     * @return the remembered outcome or {@code null} if the message is not cached
+     */
+    private Outcome cached(CharSequence message, int hash) {
+        Outcome outcome = stripe(hash).get(message, hash, bucket(hash));
+        if (outcome != null) {
+            hits.increment();
+        }
+        return outcome;
+    }
+
+    private Outcome parseAndCache(CharSequence message, int hash) {
+        misses.increment();
+
+        // parsed outside of the lock, concurrent misses of the same message parse it more than once
+        String key = message.toString();
+        Outcome outcome = parse(key);
+        if (stripe(hash).put(key, hash, bucket(hash), outcome)) {
+            evictions.increment();
+        }
+        return outcome;
+    }
+
+    /**
+     * The low bits of the hash select the stripe, the high bits the bucket within it.
+     */
+    private Stripe stripe(int hash) {
+        return stripes[hash & stripes.length - 1];
+    }
+
+    private int bucket(int hash) {
+        return (hash >>> 16 & bucketMask) * WAYS;
+    }
+
+    private Outcome parse(String message) {
+        Attributes attributes = parser.newAttributes();
+        AmlMessage value = parser.parse(message, attributes, DefaultAmlMessageBuilder.newAdvancedMobileLocation(), DefaultValidator.INSTANCE);
+        if (attributes.hasError()) {
+            return new Outcome(attributes.toResult(), attributes.getErrorMessage());
+        }
+        return new Outcome(ParseResult.success(value), null);
+    }
+
+    /**
+     * {@link String#hashCode()}, which Strings cache, spread over all bits.
+     */
+    private static int hash(CharSequence message) {
+        int hash;
+        if (message instanceof String) {
+            hash = message.hashCode();
+        } else {
+            hash = 0;
+            for (int i = 0; i < message.length(); i++) {
+                hash = 31 * hash + message.charAt(i);
+            }
+        }
+        hash *= 0x9E3779B9;
+        return hash ^ hash >>> 15;
+    }
+
+    private static final class Outcome {
+        private final ParseResult<AmlMessage> result;
+        private final String exceptionMessage;
+
+        private Outcome(ParseResult<AmlMessage> result, String exceptionMessage) {
+            this.result = result;
+            this.exceptionMessage = exceptionMessage;
+        }
+    }
+
+    private static final class Stripe {
+        private final int[] hashes;
+        private final String[] keys;
+        private final Outcome[] outcomes;
+        private final boolean[] referenced;
+
+        /**
+         * CLOCK hand per bucket, relative to the first entry of the bucket.
+         */
+        private final byte[] hands;
+
+        private Stripe(int buckets) {
+            this.hashes = new int[buckets * WAYS];
+            this.keys = new String[buckets * WAYS];
+            this.outcomes = new Outcome[buckets * WAYS];
+            this.referenced = new boolean[buckets * WAYS];
+            this.hands = new byte[buckets];
+        }
+
+        synchronized Outcome get(CharSequence message, int hash, int bucket) {
+            int entry = indexOf(message, hash, bucket);
+            if (entry < 0) {
+                return null;
+            }
+            referenced[entry] = true;
+            return outcomes[entry];
+        }
+
+        /**
+         * @return whether another message was evicted
+         */
+        synchronized boolean put(String message, int hash, int bucket, Outcome outcome) {
+            int entry = indexOf(message, hash, bucket);
+            boolean eviction = false;
+            if (entry < 0) {
+                entry = victim(bucket);
+                eviction = keys[entry] != null;
+                hashes[entry] = hash;
+                keys[entry] = message;
+            }
+            outcomes[entry] = outcome;
+            referenced[entry] = false;
+            return eviction;
+        }
+
+        private int indexOf(CharSequence message, int hash, int bucket) {
+            for (int i = bucket; i < bucket + WAYS; i++) {
+                if (hashes[i] == hash && keys[i] != null && keys[i].contentEquals(message)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Advances the hand of the bucket to the first empty or unreferenced entry, clearing the reference bits on the
+         * way. Terminates within two rounds.
+         */
+        private int victim(int bucket) {
+            int index = bucket / WAYS;
+            int hand = hands[index];
+            while (keys[bucket + hand] != null && referenced[bucket + hand]) {
+                referenced[bucket + hand] = false;
+                hand = (hand + 1) % WAYS;
+            }
+            hands[index] = (byte) ((hand + 1) % WAYS);
+            return bucket + hand;
+        }
+    }
+}
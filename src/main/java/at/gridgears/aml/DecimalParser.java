@@ -0,0 +1,96 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Parses short signed decimals such as {@code +54.76397} as used for coordinates and radius. Digits are accumulated
+ * into a long mantissa which is scaled once by an exactly representable power of ten, so the result is correctly
+ * rounded and equal to {@link Double#parseDouble(String)}. Exponents, hexadecimal notation, {@code NaN},
+ * {@code Infinity}, whitespace and type suffixes are not accepted.
+ */
+final class DecimalParser {
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private DecimalParser() {
+    }
+
+    /**
+     * @return the value between start and end or {@link Double#NaN} if it is not a plain decimal
+     */
+    @SuppressWarnings({"PMD.CyclomaticComplexity", "PMD.ModifiedCyclomaticComplexity", "PMD.StdCyclomaticComplexity", "PMD.NPathComplexity"})
+    static double parse(CharSequence value, int start, int end) {
+        int position = start;
+        boolean negative = false;
+        if (position < end) {
+            char sign = value.charAt(position);
+            if (sign == '-' || sign == '+') {
+                negative = sign == '-';
+                position++;
+            }
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean exact = true;
+        for (; position < end; position++) {
+            char character = value.charAt(position);
+            if (character == '.' && !fraction) {
+                fraction = true;
+            } else if (character >= '0' && character <= '9') {
+                digits++;
+                if (mantissa < MAX_EXACT_MANTISSA / 10) {
+                    mantissa = mantissa * 10 + character - '0';
+                    if (fraction) {
+                        scale++;
+                    }
+                } else {
+                    exact = false;
+                }
+            } else {
+                return Double.NaN;
+            }
+        }
+
+        if (digits == 0) {
+            return Double.NaN;
+        }
+
+        double result;
+        if (exact && scale < POWERS_OF_TEN.length) {
+            result = mantissa / POWERS_OF_TEN[scale];
+        } else {
+            // too many significant digits for a single correctly rounded division
+            result = Math.abs(Double.parseDouble(value.subSequence(start, end).toString()));
+        }
+        return negative ? -result : result;
+    }
+}
@@ -0,0 +1,101 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Packs strings of decimal digits into a long behind a leading 1, which keeps leading zeros, so numeric identifiers
+ * like IMSI, IMEI, MCC and MNC can be stored without a String.
+ */
+final class DigitPacking {
+    /**
+     * Up to 18 digits fit into a long together with the leading 1.
+     */
+    static final int MAX_IDENTIFIER_DIGITS = 18;
+
+    /**
+     * Network codes packed with up to 4 digits fit into 16 bits.
+     */
+    static final int MAX_NETWORK_CODE_DIGITS = 4;
+
+    static final int NETWORK_CODE_BITS = 16;
+
+    static final int NETWORK_CODE_MASK = 0xffff;
+
+    /**
+     * Result for {@code null}.
+     */
+    static final long ABSENT = 0;
+
+    /**
+     * Result for values which are empty, too long or contain other characters than digits.
+     */
+    static final long NOT_PACKABLE = -1;
+
+    private DigitPacking() {
+    }
+
+    /**
+     * @return the packed value, {@link #ABSENT} for {@code null} or {@link #NOT_PACKABLE}
+     */
+    static long pack(String digits, int maxDigits) {
+        if (digits == null) {
+            return ABSENT;
+        }
+        if (digits.isEmpty() || digits.length() > maxDigits) {
+            return NOT_PACKABLE;
+        }
+        long result = 1;
+        for (int i = 0; i < digits.length(); i++) {
+            int digit = digits.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return NOT_PACKABLE;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    /**
+     * @return the digits of a value returned by {@link #pack(String, int)}
+     */
+    static String unpack(long packed) {
+        return Long.toString(packed).substring(1);
+    }
+
+    /**
+     * @return MCC in the upper and MNC in the lower 16 bits, absent or unpackable codes are stored as 0
+     */
+    static int packNetworkCodes(long packedMcc, long packedMnc) {
+        return (int) (Math.max(packedMcc, 0) << NETWORK_CODE_BITS | Math.max(packedMnc, 0));
+    }
+
+    static long mcc(int networkCodes) {
+        return networkCodes >>> NETWORK_CODE_BITS;
+    }
+
+    static long mnc(int networkCodes) {
+        return networkCodes & NETWORK_CODE_MASK;
+    }
+}
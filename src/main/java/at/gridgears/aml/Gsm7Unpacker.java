@@ -0,0 +1,95 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Unpacks text in the GSM 03.38 default alphabet, seven bits per septet with the first septet in the least significant
+ * bits, as in the user data of an SMS, into one ISO 8859-1 byte per septet for the scanner. Lengths and offsets stay
+ * in septets.
+ * <p>
+ * The attribute names and values of a message only use septets which map to their ASCII code, including the quote of
+ * {@code A"ML} at 0x22. The other septets map to their ISO 8859-1 character where there is one, e.g. 0x00 to
+ * {@code '@'} and 0x02 to {@code '$'}. The Greek letters and the escape to the extension table have none, their
+ * offset is reported so the message can be rejected.
+ */
+final class Gsm7Unpacker {
+    /**
+     * Placeholder in the table for septets without ISO 8859-1 character, which no mapped septet decodes to.
+     */
+    private static final byte UNMAPPED = 0x1b;
+
+    private static final byte[] ALPHABET = toLatin1("@\u00A3$\u00A5\u00E8\u00E9\u00F9\u00EC\u00F2\u00C7\n\u00D8\u00F8\r\u00C5\u00E5"
+            + "\033_\033\033\033\033\033\033\033\033\033\033\u00C6\u00E6\u00DF\u00C9"
+            + " !\"#\u00A4%&'()*+,-./0123456789:;<=>?"
+            + "\u00A1ABCDEFGHIJKLMNOPQRSTUVWXYZ\u00C4\u00D6\u00D1\u00DC\u00A7"
+            + "\u00BFabcdefghijklmnopqrstuvwxyz\u00E4\u00F6\u00F1\u00FC\u00E0");
+
+    private Gsm7Unpacker() {
+    }
+
+    /**
+     * Unpacks eight septets at a time from a word of seven bytes.
+     *
+     * @param offset      the index of the first byte of the packed user data
+     * @param firstSeptet the number of septets to skip, e.g. the septets taken by a user data header and its fill bits
+     * @param septets     the number of septets to unpack into the start of the target
+     * @return the offset of the first septet without ISO 8859-1 character or -1 if all septets are mapped
+     */
+    static int unpack(byte[] userData, int offset, int firstSeptet, int septets, byte[] target) {
+        if (offset < 0 || firstSeptet < 0 || septets < 0 || septets > target.length || offset > userData.length
+                || (firstSeptet + (long) septets) * 7 > (long) (userData.length - offset) * 8) {
+            throw new IndexOutOfBoundsException("offset " + offset + ", first septet " + firstSeptet + ", septets " + septets + ", array length " + userData.length);
+        }
+        int end = firstSeptet + septets;
+        int index = 0;
+        int unmapped = -1;
+        for (int word = firstSeptet >>> 3; index < septets; word++) {
+            int position = offset + word * 7;
+            int bytes = Math.min(7, userData.length - position);
+            long bits = 0;
+            for (int i = 0; i < bytes; i++) {
+                bits |= (userData[position + i] & 0xffL) << (i * 8);
+            }
+            int from = Math.max(firstSeptet - word * 8, 0);
+            int to = Math.min(end - word * 8, 8);
+            for (int septet = from; septet < to; septet++) {
+                byte character = ALPHABET[(int) (bits >>> (septet * 7)) & 0x7f];
+                if (character == UNMAPPED && unmapped < 0) {
+                    unmapped = index;
+                }
+                target[index++] = character;
+            }
+        }
+        return unmapped;
+    }
+
+    private static byte[] toLatin1(String alphabet) {
+        byte[] bytes = new byte[alphabet.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = (byte) alphabet.charAt(i);
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,207 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Finds newline delimited lines in a bounded buffer which is refilled from a channel or moved as a memory-mapped
+ * window over a file. Lines are exposed as ranges of the buffer, so they are only valid until the next call of
+ * {@link #next()}. Trailing carriage returns are stripped and empty lines are skipped.
+ * <p>
+ * Mapped windows are much larger than the maximum length of a line, as every window is a separate mapping which is
+ * only released by the garbage collector.
+ */
+final class LineScanner {
+    private static final byte NEWLINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    /**
+     * Windows of the maximum size a single mapping can have.
+     */
+    static final int MAX_WINDOW_SIZE = Integer.MAX_VALUE;
+
+    private final ReadableByteChannel channel;
+    private final FileChannel file;
+    private final int capacity;
+    private final int windowSize;
+
+    private ByteBuffer buffer;
+    private long filePosition;
+    private boolean endOfInput;
+
+    private int lineStart;
+    private int scanPosition;
+    private boolean skipping;
+
+    private int start;
+    private int end;
+    private long lineNumber;
+    private boolean tooLong;
+
+    private LineScanner(ReadableByteChannel channel, FileChannel file, int capacity, int windowSize) {
+        this.channel = channel;
+        this.file = file;
+        this.capacity = capacity;
+        this.windowSize = windowSize;
+        this.buffer = channel == null ? ByteBuffer.allocate(0) : ByteBuffer.allocate(capacity);
+        this.buffer.limit(0);
+    }
+
+    static LineScanner reading(ReadableByteChannel channel, int bufferSize) {
+        return new LineScanner(channel, null, bufferSize, bufferSize);
+    }
+
+    /**
+     * @param maxLineLength the length above which lines are reported as too long, like the buffer size of
+     *                      {@link #reading(ReadableByteChannel, int)}
+     * @param windowSize    the maximum size of a mapped window, at least the maximum length of a line
+     */
+    static LineScanner mapping(FileChannel file, int maxLineLength, int windowSize) {
+        return new LineScanner(null, file, maxLineLength, Math.max(maxLineLength, windowSize));
+    }
+
+    /**
+     * Advances to the next non-empty line or to the next line which did not fit into the buffer.
+     *
+     * @return {@code false} at the end of the input
+     */
+    boolean next() throws IOException {
+        while (true) {
+            int limit = buffer.limit();
+            int newline = indexOfNewline(scanPosition, limit);
+            if (newline >= 0) {
+                scanPosition = newline + 1;
+                if (setLine(newline)) {
+                    return true;
+                }
+            } else if (endOfInput) {
+                scanPosition = limit;
+                return (lineStart < limit || skipping) && setLine(limit);
+            } else {
+                if (skipping) {
+                    lineStart = limit;
+                }
+                scanPosition = limit;
+                fill();
+            }
+        }
+    }
+
+    ByteBuffer buffer() {
+        return buffer;
+    }
+
+    int start() {
+        return start;
+    }
+
+    int length() {
+        return end - start;
+    }
+
+    /**
+     * @return the one based number of the current line
+     */
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * @return whether the current line was skipped as it does not fit into the buffer
+     */
+    boolean isTooLong() {
+        return tooLong;
+    }
+
+    /**
+     * @return whether the line ending at lineEnd is to be reported
+     */
+    private boolean setLine(int lineEnd) {
+        lineNumber++;
+        start = lineStart;
+        end = lineEnd > start && buffer.get(lineEnd - 1) == CARRIAGE_RETURN ? lineEnd - 1 : lineEnd;
+        // mapped windows hold lines longer than the maximum, which are reported like the ones that did not fit
+        tooLong = skipping || lineEnd - lineStart > capacity;
+        lineStart = scanPosition;
+        skipping = false;
+        // empty lines are counted, so line numbers are those of the input
+        return tooLong || end > start;
+    }
+
+    private int indexOfNewline(int from, int to) {
+        for (int i = from; i < to; i++) {
+            if (buffer.get(i) == NEWLINE) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private void fill() throws IOException {
+        if (lineStart == 0 && buffer.limit() == windowSize) {
+            // a line which does not fit into the buffer is skipped up to its end
+            skipping = true;
+            lineStart = buffer.limit();
+        }
+        if (channel != null) {
+            read();
+        } else {
+            map();
+        }
+    }
+
+    private void read() throws IOException {
+        int remaining = buffer.limit() - lineStart;
+        buffer.position(lineStart);
+        buffer.compact();
+        scanPosition -= lineStart;
+        lineStart = 0;
+
+        int read = channel.read(buffer);
+        if (read == 0) {
+            // a blocking channel reads at least one byte, so polling a non-blocking one would spin
+            throw new IOException("channel returned no data, non-blocking channels are not supported");
+        }
+
+        endOfInput = read < 0;
+        buffer.limit(buffer.position());
+        buffer.position(0);
+        scanPosition = Math.min(scanPosition, remaining);
+    }
+
+    private void map() throws IOException {
+        filePosition += lineStart;
+        scanPosition -= lineStart;
+        lineStart = 0;
+
+        long size = Math.min(windowSize, file.size() - filePosition);
+        buffer = file.map(FileChannel.MapMode.READ_ONLY, filePosition, size);
+        endOfInput = filePosition + size >= file.size();
+    }
+}
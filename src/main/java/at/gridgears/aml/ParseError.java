@@ -0,0 +1,52 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+public enum ParseError {
+    /**
+     * The ml attribute is missing or does not match the actual message length.
+     */
+    MESSAGE_LENGTH,
+    /**
+     * The message contains an attribute which is not part of AML.
+     */
+    UNKNOWN_ATTRIBUTE,
+    /**
+     * The value of a known attribute cannot be parsed.
+     */
+    INVALID_VALUE,
+    /**
+     * The message was parsed but rejected by the validator.
+     */
+    VALIDATION,
+    /**
+     * The message does not fit into the buffer of the reader and was skipped.
+     */
+    MESSAGE_TOO_LONG,
+    /**
+     * The body of an HTTPS request is not valid form or JSON encoding, the offset is the one into the body.
+     */
+    MALFORMED_BODY
+}
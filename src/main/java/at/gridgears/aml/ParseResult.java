@@ -0,0 +1,109 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Outcome of {@link AmlMessageParser#tryParse(CharSequence, at.gridgears.aml.builder.AmlMessageBuilder)}: either the
+ * built value or the error, the name of the offending attribute and the offset of its value in the message.
+ */
+public final class ParseResult<T> {
+    private final T value;
+    private final ParseError error;
+    private final String attribute;
+    private final int offset;
+    private final String message;
+
+    private ParseResult(T value, ParseError error, String attribute, int offset, String message) {
+        this.value = value;
+        this.error = error;
+        this.attribute = attribute;
+        this.offset = offset;
+        this.message = message;
+    }
+
+    static <T> ParseResult<T> success(T value) {
+        return new ParseResult<>(value, null, null, -1, null);
+    }
+
+    static <T> ParseResult<T> failure(ParseError error, String attribute, int offset) {
+        return new ParseResult<>(null, error, attribute, offset, null);
+    }
+
+    static <T> ParseResult<T> invalid(String message) {
+        return new ParseResult<>(null, ParseError.VALIDATION, null, -1, message);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+
+    /**
+     * @return the built value or {@code null} if parsing failed
+     */
+    public T getValue() {
+        return value;
+    }
+
+    /**
+     * @return the error or {@code null} if parsing succeeded
+     */
+    public ParseError getError() {
+        return error;
+    }
+
+    /**
+     * @return the name of the offending attribute or {@code null} if the error is not caused by a known attribute
+     */
+    public String getAttribute() {
+        return attribute;
+    }
+
+    /**
+     * @return the offset of the offending value or attribute in the message or -1 if not applicable
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the message of the validation failure or {@code null}
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public String toString() {
+        if (error == null) {
+            return "ParseResult{value=" + value + '}';
+        }
+        return "ParseResult{" +
+                "error=" + error +
+                ", attribute=" + attribute +
+                ", offset=" + offset +
+                (message == null ? "" : ", message='" + message + '\'') +
+                '}';
+    }
+}
@@ -0,0 +1,93 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.AmlMessageBuilder;
+import at.gridgears.aml.validation.Validator;
+
+import java.util.List;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Spliterator over the parse results of a random access list of messages. Every split owns a builder and an
+ * {@link Attributes} instance, which are reused for all messages it traverses.
+ */
+final class ParseSpliterator<T> implements Spliterator<ParseResult<T>> {
+    private static final int MIN_SPLIT_SIZE = 64;
+
+    private final AmlMessageParser parser;
+    private final List<? extends CharSequence> messages;
+    private final Supplier<? extends AmlMessageBuilder<T>> builders;
+    private final Validator<T> validator;
+    private final Attributes attributes;
+    private int index;
+    private final int end;
+    private AmlMessageBuilder<T> builder;
+
+    ParseSpliterator(AmlMessageParser parser, List<? extends CharSequence> messages, int index, int end, Supplier<? extends AmlMessageBuilder<T>> builders, Validator<T> validator) {
+        this.parser = parser;
+        this.attributes = parser.newAttributes();
+        this.messages = messages;
+        this.index = index;
+        this.end = end;
+        this.builders = builders;
+        this.validator = validator;
+    }
+
+    @Override
+    public boolean tryAdvance(Consumer<? super ParseResult<T>> action) {
+        if (index >= end) {
+            return false;
+        }
+        if (builder == null) {
+            builder = builders.get();
+        }
+        action.accept(parser.tryParse(messages.get(index++), attributes, builder, validator));
+        return true;
+    }
+
+    @Override
+    public Spliterator<ParseResult<T>> trySplit() {
+        int remaining = end - index;
+        if (remaining < MIN_SPLIT_SIZE * 2) {
+            return null;
+        }
+        int start = index;
+        index += remaining >>> 1;
+        return new ParseSpliterator<>(parser, messages, start, index, builders, validator);
+    }
+
+    @Override
+    public long estimateSize() {
+        return end - index;
+    }
+
+    @Override
+    public int characteristics() {
+        return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE;
+    }
+}
@@ -35,17 +35,48 @@ final class PositioningMethodMapper {
             return null;
         }
 
-        switch (pm) {
-            case "G":
+        PositioningMethod positioningMethod = pm.length() == 1 ? find(pm.charAt(0)) : null;
+        if (positioningMethod == null) {
+            throw new IllegalArgumentException("Cannot map PositioningMethod " + pm);
+        }
+        return positioningMethod;
+    }
+
+    /**
+     * Looks up the positioning method without throwing, for the exception-free parse paths.
+     *
+     * @return the positioning method of the letter or {@code null} if the letter is unknown
+     */
+    PositioningMethod find(final char code) {
+        switch (code) {
+            case 'G':
                 return GNSS;
-            case "W":
+            case 'W':
                 return WIFI_SIGNAL;
-            case "C":
+            case 'C':
                 return CELL;
-            case "N":
+            case 'N':
                 return NO_LOCATION;
             default:
-                throw new IllegalArgumentException("Cannot map PositioningMethod " + pm);
+                return null;
+        }
+    }
+
+    /**
+     * @return the letter of the positioning method in the message, the reverse of {@link #get(String)}
+     */
+    char getCode(final PositioningMethod positioningMethod) {
+        switch (positioningMethod) {
+            case GNSS:
+                return 'G';
+            case WIFI_SIGNAL:
+                return 'W';
+            case CELL:
+                return 'C';
+            case NO_LOCATION:
+                return 'N';
+            default:
+                throw new IllegalArgumentException("Cannot map PositioningMethod " + positioningMethod);
         }
     }
 
@@ -0,0 +1,46 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Bits of the presence mask used by compact message representations to tell missing attributes from zero values.
+ */
+final class Presence {
+    static final int VERSION = 1;
+    static final int LATITUDE = 1 << 1;
+    static final int LONGITUDE = 1 << 2;
+    static final int RADIUS = 1 << 3;
+    static final int IMSI = 1 << 4;
+    static final int IMEI = 1 << 5;
+    static final int TIME_OF_POSITIONING = 1 << 6;
+    static final int LEVEL_OF_CONFIDENCE = 1 << 7;
+    static final int POSITIONING_METHOD = 1 << 8;
+    static final int MCC = 1 << 9;
+    static final int MNC = 1 << 10;
+    static final int LENGTH = 1 << 11;
+
+    private Presence() {
+    }
+}
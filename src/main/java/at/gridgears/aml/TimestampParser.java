@@ -0,0 +1,172 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+/**
+ * Parses the {@code yyyyMMddHHmmss} time of positioning (UTC) directly into epoch seconds. Unlike a lenient
+ * {@link java.text.SimpleDateFormat}, out of range fields such as month 13 or second 60 are rejected and exactly 14
+ * digits are required. Dates use the proleptic Gregorian calendar of {@code java.time}.
+ * <p>
+ * A caching instance remembers the most recent minute, so bursts of messages with nearly identical timestamps only
+ * decode the seconds. It is safe for concurrent use.
+ */
+final class TimestampParser {
+    static final long INVALID = Long.MIN_VALUE;
+
+    static final TimestampParser UNCACHED = new TimestampParser(false);
+
+    private static final int LENGTH = 14;
+
+    private static final int SECONDS_PER_MINUTE = 60;
+    private static final int SECONDS_PER_HOUR = 3600;
+    private static final int SECONDS_PER_DAY = 86400;
+
+    private static final int DAYS_PER_ERA = 146097;
+    private static final int DAYS_0000_TO_1970 = 719468;
+
+    private final boolean cacheMinute;
+
+    private volatile CachedMinute lastMinute = new CachedMinute(-1, INVALID);
+
+    private TimestampParser(boolean cacheMinute) {
+        this.cacheMinute = cacheMinute;
+    }
+
+    static TimestampParser cachingLastMinute() {
+        return new TimestampParser(true);
+    }
+
+    /**
+     * @return the epoch second of the timestamp between start and end or {@link #INVALID} if it is malformed
+     */
+    long parseEpochSecond(CharSequence value, int start, int end) {
+        if (end - start != LENGTH) {
+            return INVALID;
+        }
+
+        int second = digits(value, start + 12, 2);
+        if (second < 0 || second >= SECONDS_PER_MINUTE) {
+            return INVALID;
+        }
+
+        long minuteKey = digitsLong(value, start, 12);
+        if (minuteKey < 0) {
+            return INVALID;
+        }
+
+        if (cacheMinute) {
+            CachedMinute cached = lastMinute;
+            if (cached.key == minuteKey) {
+                return cached.epochSecond + second;
+            }
+        }
+
+        long minuteEpochSecond = minuteEpochSecond(minuteKey);
+        if (cacheMinute && minuteEpochSecond != INVALID) {
+            lastMinute = new CachedMinute(minuteKey, minuteEpochSecond);
+        }
+        return minuteEpochSecond == INVALID ? INVALID : minuteEpochSecond + second;
+    }
+
+    /**
+     * @param minuteKey the digits {@code yyyyMMddHHmm} as number
+     */
+    private static long minuteEpochSecond(long minuteKey) {
+        int minute = (int) (minuteKey % 100);
+        int hour = (int) (minuteKey / 100 % 100);
+        int day = (int) (minuteKey / 10_000 % 100);
+        int month = (int) (minuteKey / 1_000_000 % 100);
+        int year = (int) (minuteKey / 100_000_000);
+
+        if (month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month) || hour > 23 || minute > 59) {
+            return INVALID;
+        }
+        return daysSinceEpoch(year, month, day) * SECONDS_PER_DAY + (long) hour * SECONDS_PER_HOUR + (long) minute * SECONDS_PER_MINUTE;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static boolean isLeapYear(int year) {
+        return (year & 3) == 0 && (year % 100 != 0 || year % 400 == 0);
+    }
+
+    /**
+     * Days from civil date, see http://howardhinnant.github.io/date_algorithms.html. Years are never negative here.
+     */
+    private static long daysSinceEpoch(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return (long) era * DAYS_PER_ERA + dayOfEra - DAYS_0000_TO_1970;
+    }
+
+    private static int digits(CharSequence value, int start, int count) {
+        int result = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static long digitsLong(CharSequence value, int start, int count) {
+        long result = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = value.charAt(i) - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            result = result * 10 + digit;
+        }
+        return result;
+    }
+
+    private static final class CachedMinute {
+        private final long key;
+        private final long epochSecond;
+
+        private CachedMinute(long key, long epochSecond) {
+            this.key = key;
+            this.epochSecond = epochSecond;
+        }
+    }
+}
@@ -24,6 +24,8 @@
 
 package at.gridgears.aml.builder;
 
+import at.gridgears.aml.AmlExtension;
+import at.gridgears.aml.AmlSchema;
 import at.gridgears.aml.PositioningMethod;
 
 import java.time.Instant;
@@ -53,5 +55,33 @@ public interface AmlMessageBuilder<T> {
 
     AmlMessageBuilder<T> length(Integer length);
 
+    /**
+     * Receives the value of an extension attribute of the {@link AmlSchema} of the parser, {@code null} if the
+     * message does not contain it. The default implementation ignores extensions.
+     */
+    default <V> AmlMessageBuilder<T> extension(AmlExtension<V> extension, V value) {
+        return this;
+    }
+
     T build();
+
+    /**
+     * Clears all values so the builder can be reused for the next message. The default implementation sets every
+     * value to {@code null}, builders with additional state should override it.
+     */
+    default AmlMessageBuilder<T> reset() {
+        version(null);
+        latitude(null);
+        longitude(null);
+        radiusMeters(null);
+        imsi(null);
+        imei(null);
+        timeOfPositioning(null);
+        levelOfConfidence(null);
+        positionMethod(null);
+        mcc(null);
+        mnc(null);
+        length(null);
+        return this;
+    }
 }
@@ -122,6 +122,23 @@ public final class DefaultAmlMessageBuilder implements AmlMessageBuilder<AmlMess
         return this;
     }
 
+    @Override
+    public DefaultAmlMessageBuilder reset() {
+        version = null;
+        latitude = null;
+        longitude = null;
+        radiusMeters = null;
+        imsi = null;
+        imei = null;
+        timeOfPositioning = null;
+        levelOfConfidence = null;
+        positionMethod = null;
+        mcc = null;
+        mnc = null;
+        length = null;
+        return this;
+    }
+
     @Override
     public AmlMessage build() {
         return new AmlMessage(version, latitude, longitude, radiusMeters, imsi, imei, timeOfPositioning, levelOfConfidence, positionMethod, mcc, mnc, length);
@@ -0,0 +1,74 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml.builder;
+
+import java.time.Instant;
+
+/**
+ * {@link AmlMessageBuilder} which receives numeric values as primitives. If a builder implements this interface,
+ * the parser calls the primitive setters for every attribute that is present, while missing attributes (and a
+ * radius of {@code N}) are reported through the boxed setter with {@code null}, so no value is boxed on the way.
+ * <p>
+ * The default implementations delegate to the boxed setters, implementations override the ones they care about.
+ */
+public interface PrimitiveAmlMessageBuilder<T> extends AmlMessageBuilder<T> {
+    default PrimitiveAmlMessageBuilder<T> version(int version) {
+        version(Integer.valueOf(version));
+        return this;
+    }
+
+    default PrimitiveAmlMessageBuilder<T> latitude(double latitude) {
+        latitude(Double.valueOf(latitude));
+        return this;
+    }
+
+    default PrimitiveAmlMessageBuilder<T> longitude(double longitude) {
+        longitude(Double.valueOf(longitude));
+        return this;
+    }
+
+    default PrimitiveAmlMessageBuilder<T> radiusMeters(double radiusMeters) {
+        radiusMeters(Double.valueOf(radiusMeters));
+        return this;
+    }
+
+    /**
+     * @param epochSecond the time of positioning in seconds since the epoch
+     */
+    default PrimitiveAmlMessageBuilder<T> timeOfPositioning(long epochSecond) {
+        timeOfPositioning(Instant.ofEpochSecond(epochSecond));
+        return this;
+    }
+
+    default PrimitiveAmlMessageBuilder<T> levelOfConfidence(int levelOfConfidence) {
+        levelOfConfidence(Integer.valueOf(levelOfConfidence));
+        return this;
+    }
+
+    default PrimitiveAmlMessageBuilder<T> length(int length) {
+        length(Integer.valueOf(length));
+        return this;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml.builder;
+
+import at.gridgears.aml.AttributeName;
+
+/**
+ * {@link AmlMessageBuilder} which uses only some attributes. If a builder implements this interface, the parser still
+ * checks the structure and length of every message and applies its rules, but does not decode the values of the
+ * other attributes and passes {@code null} for them instead. Invalid values of those attributes are therefore not
+ * detected either. Extension attributes are not affected.
+ * <p>
+ * A builder which only routes by location could declare
+ * <pre>
+ * private static final long CONSUMED = AttributeName.maskOf(EnumSet.of(LATITUDE, LONGITUDE, RADIUS, POSITIONING_METHOD));
+ * </pre>
+ * and return it from {@link #consumedAttributes()}.
+ */
+public interface SelectiveAmlMessageBuilder<T> extends AmlMessageBuilder<T> {
+    /**
+     * The parser asks for every message, so implementations should return a constant.
+     *
+     * @return the {@link AttributeName#mask() mask} of the attributes whose values the builder uses
+     */
+    long consumedAttributes();
+}
@@ -29,4 +29,12 @@ public class AmlException extends Exception {
     AmlException(String message) {
         super(message);
     }
+
+    /**
+     * @param writableStackTrace {@code false} skips capturing the stack trace, which makes creating the exception
+     *                           about as cheap as any other object
+     */
+    AmlException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
 }
@@ -29,4 +29,11 @@ public class AmlParseException extends AmlException {
     public AmlParseException(String message) {
         super(message);
     }
+
+    /**
+     * @param writableStackTrace {@code false} skips capturing the stack trace
+     */
+    public AmlParseException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
@@ -29,4 +29,11 @@ public class AmlValidationException extends AmlException {
     public AmlValidationException(String message) {
         super(message);
     }
+
+    /**
+     * @param writableStackTrace {@code false} skips capturing the stack trace
+     */
+    public AmlValidationException(String message, boolean writableStackTrace) {
+        super(message, writableStackTrace);
+    }
 }
@@ -30,10 +30,33 @@ import at.gridgears.aml.exceptions.AmlValidationException;
 import java.util.Objects;
 
 public class DefaultValidator implements Validator<AmlMessage> {
+    /**
+     * The validator is stateless, so a single instance can be shared by all parsers and threads.
+     */
+    public static final DefaultValidator INSTANCE = new DefaultValidator();
+
+    /**
+     * Creates its exceptions without stack trace, for callers which report failures as results rather than throwing
+     * them.
+     */
+    public static final DefaultValidator WITHOUT_STACK_TRACES = new DefaultValidator(false);
+
+    private final boolean writableStackTrace;
+
+    public DefaultValidator() {
+        this(true);
+    }
+
+    /**
+     * @param writableStackTrace {@code false} skips capturing the stack trace of the exceptions
+     */
+    public DefaultValidator(boolean writableStackTrace) {
+        this.writableStackTrace = writableStackTrace;
+    }
 
     public AmlMessage validate(AmlMessage candidate) throws AmlValidationException {
         if (!Objects.equals(1, candidate.getVersion())) {
-            throw new AmlValidationException("unknown interface version: "+candidate.getVersion());
+            throw new AmlValidationException("unknown interface version: " + candidate.getVersion(), writableStackTrace);
         }
 
         return candidate;
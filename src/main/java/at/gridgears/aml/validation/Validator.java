@@ -26,7 +26,36 @@ package at.gridgears.aml.validation;
 
 import at.gridgears.aml.exceptions.AmlValidationException;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public interface Validator<T> {
 
     T validate(T amlMessage) throws AmlValidationException;
+
+    /**
+     * @return a validator which passes the result of this validator to the next one, a rejection skips the next one
+     */
+    default Validator<T> andThen(Validator<T> next) {
+        return amlMessage -> next.validate(validate(amlMessage));
+    }
+
+    /**
+     * Chains the validators in the given order like {@link #andThen(Validator)}, but iterates over a list instead of
+     * nesting calls, which keeps long chains cheap.
+     */
+    @SafeVarargs
+    static <T> Validator<T> chain(Validator<T>... validators) {
+        List<Validator<T>> chain = new ArrayList<>(validators.length);
+        for (Validator<T> validator : validators) {
+            chain.add(validator);
+        }
+        return amlMessage -> {
+            T result = amlMessage;
+            for (int i = 0; i < chain.size(); i++) {
+                result = chain.get(i).validate(result);
+            }
+            return result;
+        };
+    }
 }
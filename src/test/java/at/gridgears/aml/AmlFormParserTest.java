@@ -0,0 +1,159 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.builder.PrimitiveAmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlException;
+import at.gridgears.aml.exceptions.AmlParseException;
+import at.gridgears.aml.validation.DefaultValidator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("PMD.TooManyStaticImports")
+public class AmlFormParserTest {
+    private static final String MESSAGE = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    private static final String FORM = "A%22ML=1&lt=%2B54.76397&lg=-0.18305&rd=50&top=20130717141935&lc=90&pm=W&si=123456789012345&ei=1234567890123456&mcc=234&mnc=30&ml=128";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AmlFormParser parser = new AmlFormParser();
+
+    @Test
+    public void parsesFormBody() throws AmlException {
+        AmlMessage message = parser.parse(bytes(FORM), 0, FORM.length());
+
+        assertThat(message, is(expected()));
+    }
+
+    @Test
+    public void decodesBodyInPlace() throws AmlException {
+        byte[] body = bytes("xx" + FORM + "&&");
+
+        ParseResult<AmlMessage> result = parser.tryParse(body, 2, FORM.length() + 2, DefaultAmlMessageBuilder.newAdvancedMobileLocation(), DefaultValidator.INSTANCE);
+
+        assertThat(result.getValue(), is(expected()));
+        assertThat(new String(body, 2, 22, StandardCharsets.ISO_8859_1), is("A\"ML=1;lt=+54.76397;lg"));
+    }
+
+    @Test
+    public void parsesHeapAndDirectBuffers() throws AmlException {
+        ByteBuffer heap = ByteBuffer.wrap(bytes("x" + FORM));
+        heap.position(1);
+        ByteBuffer direct = ByteBuffer.allocateDirect(FORM.length());
+        direct.put(bytes(FORM)).flip();
+
+        assertThat(parser.parse(heap), is(expected()));
+        assertThat(parser.parse(direct), is(expected()));
+        assertThat(heap.position(), is(1));
+    }
+
+    @Test
+    public void doesNotRequireMessageLength() {
+        String form = FORM.replace("&ml=128", "");
+
+        ParseResult<AmlMessage> result = parser.tryParse(bytes(form), 0, form.length());
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getValue().getLength(), nullValue());
+    }
+
+    @Test
+    public void decodesPlusAsSpace() {
+        String form = FORM.replace("pm=W", "pm=W+");
+
+        ParseResult<AmlMessage> result = parser.tryParse(bytes(form), 0, form.length());
+
+        assertThat(result.getError(), is(ParseError.INVALID_VALUE));
+        assertThat(result.getAttribute(), is("pm"));
+    }
+
+    @Test
+    public void reportsInvalidEscapeWithOffsetIntoBody() {
+        ParseResult<AmlMessage> result = parser.tryParse(bytes("A%22ML=1&lt=%2G5"), 0, 16);
+
+        assertThat(result.getError(), is(ParseError.MALFORMED_BODY));
+        assertThat(result.getOffset(), is(12));
+    }
+
+    @Test
+    public void rejectsEscapedSeparators() {
+        assertThat(parser.tryParse(bytes("lt=1%3B2"), 0, 8).getError(), is(ParseError.MALFORMED_BODY));
+        assertThat(parser.tryParse(bytes("l%3Dt=1"), 0, 7).getError(), is(ParseError.MALFORMED_BODY));
+        assertThat(parser.tryParse(bytes("lt=1;lg=2"), 0, 9).getError(), is(ParseError.MALFORMED_BODY));
+        assertThat(parser.tryParse(bytes("lt=1%3"), 0, 6).getError(), is(ParseError.MALFORMED_BODY));
+    }
+
+    @Test
+    public void throwsParseExceptionForMalformedBody() throws AmlException {
+        thrown.expect(AmlParseException.class);
+        thrown.expectMessage("malformed body at offset 3");
+
+        parser.parse(bytes("lt=%zz"), 0, 6);
+    }
+
+    @Test
+    public void reportsUnknownAttributes() {
+        String form = FORM + "&foo=bar";
+
+        ParseResult<AmlMessage> result = parser.tryParse(bytes(form), 0, form.length());
+
+        assertThat(result.getError(), is(ParseError.UNKNOWN_ATTRIBUTE));
+    }
+
+    private static AmlMessage expected() throws AmlException {
+        return new AmlMessageParser().parse(MESSAGE);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void primitiveBuilderDoesNotRequireMessageLength() {
+        String form = FORM.replace("&ml=128", "");
+        PrimitiveAmlMessageBuilder<Object> builder = mock(PrimitiveAmlMessageBuilder.class);
+        when(builder.build()).thenReturn("built");
+
+        ParseResult<Object> result = parser.tryParse(bytes(form), 0, form.length(), builder, value -> value);
+
+        assertThat(result.getValue(), is((Object) "built"));
+        verify(builder).length((Integer) null);
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
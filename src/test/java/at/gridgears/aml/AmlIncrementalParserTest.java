@@ -0,0 +1,153 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlException;
+import at.gridgears.aml.validation.DefaultValidator;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AmlIncrementalParserTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    private final List<ParseResult<AmlMessage>> results = new ArrayList<>();
+
+    private final AmlIncrementalParser<AmlMessage> parser = AmlIncrementalParser.newAdvancedMobileLocationParser(results::add);
+
+    @Test
+    public void completesMessageSplitAtAnyPosition() throws AmlException {
+        AmlMessage expected = new AmlMessageParser().parse(VALID);
+
+        for (int split = 0; split <= VALID.length(); split++) {
+            parser.feed(VALID.substring(0, split));
+            parser.feed(VALID.substring(split));
+        }
+
+        assertThat(results.size(), is(VALID.length() + 1));
+        for (ParseResult<AmlMessage> result : results) {
+            assertThat(result.getValue(), is(expected));
+        }
+    }
+
+    @Test
+    public void keepsIncompleteMessage() {
+        byte[] bytes = VALID.getBytes(StandardCharsets.ISO_8859_1);
+
+        parser.feed(bytes, 0, 100);
+
+        assertThat(results.isEmpty(), is(true));
+        assertThat(parser.pendingLength(), is(100));
+
+        parser.feed(bytes, 100, bytes.length - 100);
+
+        assertThat(results.size(), is(1));
+        assertThat(parser.pendingLength(), is(0));
+    }
+
+    @Test
+    public void separatesConsecutiveMessages() {
+        ByteBuffer chunk = ByteBuffer.wrap((VALID + VALID.replace("lc=90", "lc=80") + "A\"ML=1;").getBytes(StandardCharsets.ISO_8859_1));
+
+        parser.feed(chunk);
+
+        assertThat(chunk.hasRemaining(), is(false));
+        assertThat(results.size(), is(2));
+        assertThat(results.get(0).getValue().getLevelOfConfidence(), is(90));
+        assertThat(results.get(1).getValue().getLevelOfConfidence(), is(80));
+        assertThat(parser.pendingLength(), is(7));
+    }
+
+    @Test
+    public void reportsInvalidMessage() {
+        parser.feed(VALID.replace("lc=90", "lc=9x"));
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getError(), is(ParseError.INVALID_VALUE));
+        assertThat(results.get(0).getAttribute(), is("lc"));
+    }
+
+    @Test
+    public void reportsLengthSmallerThanReceived() {
+        parser.feed("A\"ML=1;ml=5;lt=+54.76397");
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getError(), is(ParseError.MESSAGE_LENGTH));
+        assertThat(results.get(0).getOffset(), is(10));
+        assertThat(parser.pendingLength(), is(0));
+    }
+
+    @Test
+    public void recoversAfterMessageWithWrongLength() {
+        String wrongLength = VALID.replace("ml=128", "ml=127");
+
+        parser.feed(wrongLength + VALID + VALID);
+        parser.feed("A\"ML=1;ml=5;lt=+54.76397");
+        parser.feed("A\"MLA\"M" + VALID.substring(0, 50));
+        parser.feed(VALID.substring(50));
+
+        assertThat(results.size(), is(5));
+        assertThat(results.get(0).getError(), is(ParseError.MESSAGE_LENGTH));
+        assertThat(results.get(1).isSuccess(), is(true));
+        assertThat(results.get(2).isSuccess(), is(true));
+        assertThat(results.get(3).getError(), is(ParseError.MESSAGE_LENGTH));
+        assertThat(results.get(4).isSuccess(), is(true));
+        assertThat(parser.pendingLength(), is(0));
+    }
+
+    @Test
+    public void reportsMessageExceedingCapacity() {
+        AmlIncrementalParser<AmlMessage> small = new AmlIncrementalParser<>(new AmlMessageParser(), DefaultAmlMessageBuilder.newAdvancedMobileLocation(), DefaultValidator.INSTANCE, results::add, 64);
+
+        small.feed(VALID.substring(0, 64));
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).getError(), is(ParseError.MESSAGE_TOO_LONG));
+        assertThat(small.pendingLength(), is(0));
+
+        small.feed(VALID.substring(64) + "A\"ML=1;lt=+54.76397;ml=25");
+
+        assertThat(results.size(), is(2));
+        assertThat(results.get(1).getError() == ParseError.MESSAGE_TOO_LONG, is(false));
+        assertThat(results.get(1).getError() == ParseError.MESSAGE_LENGTH, is(false));
+    }
+
+    @Test
+    public void resetDiscardsIncompleteMessage() {
+        parser.feed(VALID.substring(0, 100));
+        parser.reset();
+        parser.feed(VALID);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).isSuccess(), is(true));
+    }
+}
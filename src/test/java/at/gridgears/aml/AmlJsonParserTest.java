@@ -0,0 +1,122 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.PrimitiveAmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlException;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@SuppressWarnings("PMD.TooManyStaticImports")
+public class AmlJsonParserTest {
+    private static final String MESSAGE = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    private static final String JSON = "{\n  \"A\\\"ML\": 1,\n  \"lt\": \"+54.76397\",\n  \"lg\": -0.18305,\n  \"rd\": 50,\n  \"top\": \"20130717141935\",\n"
+            + "  \"lc\": 90,\n  \"pm\": \"\\u0057\",\n  \"si\": \"123456789012345\",\n  \"ei\": \"1234567890123456\",\n  \"mcc\": \"234\",\n  \"mnc\": \"30\",\n  \"ml\": 128\n}";
+
+    private final AmlJsonParser parser = new AmlJsonParser();
+
+    @Test
+    public void parsesJsonBody() throws AmlException {
+        AmlMessage message = parser.parse(bytes(JSON), 0, JSON.length());
+
+        assertThat(message, is(new AmlMessageParser().parse(MESSAGE)));
+    }
+
+    @Test
+    public void parsesReadOnlyBufferWithoutChangingIt() throws AmlException {
+        ByteBuffer body = ByteBuffer.wrap(bytes(JSON)).asReadOnlyBuffer();
+
+        AmlMessage message = parser.parse(body);
+
+        assertThat(message, is(new AmlMessageParser().parse(MESSAGE)));
+        assertThat(body.get(0), is((byte) '{'));
+        assertThat(body.position(), is(0));
+    }
+
+    @Test
+    public void treatsNullAsMissing() {
+        String json = "{\"A\\\"ML\":1,\"lt\":54.76397,\"lg\":-0.18305,\"rd\":null}";
+
+        ParseResult<AmlMessage> result = parser.tryParse(bytes(json), 0, json.length());
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getValue().getLatitude(), is(54.76397D));
+        assertThat(result.getValue().getRadiusMeters(), nullValue());
+    }
+
+    @Test
+    public void acceptsEmptyObject() {
+        ParseResult<AmlMessage> result = parser.tryParse(bytes(" {} "), 0, 4);
+
+        assertThat(result.getError() == ParseError.MALFORMED_BODY, is(false));
+    }
+
+    @Test
+    public void reportsSyntaxErrorsWithOffsetIntoBody() {
+        assertMalformed("{\"lt\":54.7", 10);
+        assertMalformed("{\"lt\" 54.7}", 6);
+        assertMalformed("{\"lt\":true}", 6);
+        assertMalformed("{\"lt\":[1]}", 6);
+        assertMalformed("{\"lt\":1,}", 8);
+        assertMalformed("{\"lt\":1} x", 9);
+        assertMalformed("{\"lt\":\"\\u4e2d\"}", 7);
+        assertMalformed("{\"lt\":\"1;2\"}", 8);
+        assertMalformed("{\"l=t\":1}", 3);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void primitiveBuilderDoesNotRequireMessageLength() {
+        String json = "{\"A\\\"ML\":1,\"lt\":54.76397,\"lg\":-0.18305}";
+        PrimitiveAmlMessageBuilder<Object> builder = mock(PrimitiveAmlMessageBuilder.class);
+        when(builder.build()).thenReturn("built");
+
+        ParseResult<Object> result = parser.tryParse(bytes(json), 0, json.length(), builder, value -> value);
+
+        assertThat(result.getValue(), is((Object) "built"));
+        verify(builder).length((Integer) null);
+    }
+
+    private void assertMalformed(String json, int offset) {
+        ParseResult<AmlMessage> result = parser.tryParse(bytes(json), 0, json.length());
+
+        assertThat(json, result.getError(), is(ParseError.MALFORMED_BODY));
+        assertThat(json, result.getOffset(), is(offset));
+    }
+
+    private static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.exceptions.AmlException;
+import at.gridgears.aml.validation.DefaultValidator;
+import at.gridgears.aml.validation.Validator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AmlMessageBatchTest {
+    private static final Validator<AmlMessageBatch> NO_VALIDATION = batch -> batch;
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AmlMessageParser parser = new AmlMessageParser();
+
+    @Test
+    public void growsAndKeepsAllValues() throws AmlException {
+        AmlMessageBatch batch = AmlMessageBatch.onHeap(2);
+
+        for (int i = 0; i < 100; i++) {
+            parser.parse(message(i), batch.appender(), NO_VALIDATION);
+        }
+
+        assertThat(batch.size(), is(100));
+        for (int i = 0; i < 100; i++) {
+            assertThat(batch.get(i), is(parser.parse(message(i))));
+        }
+    }
+
+    @Test
+    public void selectsGnssFixesWithSmallRadiusInTimeWindow() throws AmlException {
+        AmlMessageBatch batch = AmlMessageBatch.offHeap(100);
+        for (int i = 0; i < 100; i++) {
+            parser.parse(message(i), batch.appender(), NO_VALIDATION);
+        }
+
+        int[] rows = batch.select()
+                .positionMethod(PositioningMethod.GNSS)
+                .radiusBelow(50)
+                .timeOfPositioningBetween(Instant.parse("2013-07-17T14:19:10Z"), Instant.parse("2013-07-17T14:19:40Z"))
+                .toArray();
+
+        // GNSS for even rows, radius below 50 for rows below 50, seconds 10 to 39
+        assertThat(rows.length, is(15));
+        assertThat(rows[0], is(10));
+        assertThat(rows[14], is(38));
+        assertThat(batch.getRadiusMeters(rows[0]), is(10.0));
+        assertThat(batch.getPositionMethod(rows[0]), is(PositioningMethod.GNSS));
+    }
+
+    @Test
+    public void missingValuesNeverMatch() throws AmlException {
+        AmlMessageBatch batch = AmlMessageBatch.onHeap();
+        parser.parse("A\"ML=1;lt=+00.00000;lg=+000.00000;rd=N;top=20130717141935;lc=90;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=129", batch.appender(), NO_VALIDATION);
+        parser.parse("A\"ML=1;lg=-0.18305;ml=24", batch.appender(), NO_VALIDATION);
+
+        assertThat(batch.select().radiusBelow(Double.MAX_VALUE).count(), is(0));
+        assertThat(batch.select().within(-90, 90, -180, 180).count(), is(1));
+        assertThat(batch.getRadiusMeters(0), is(Double.NaN));
+        assertThat(batch.getEpochSecond(1), is(Long.MIN_VALUE));
+        assertThat(batch.get(1), is(new AmlMessage(1, null, -0.18305, null, null, null, null, null, null, null, null, 24)));
+    }
+
+    @Test
+    public void clearedBatchDoesNotLeakValuesOfEarlierRows() throws AmlException {
+        AmlMessageBatch batch = AmlMessageBatch.onHeap();
+        parser.parse(message(1), batch.appender(), NO_VALIDATION);
+
+        batch.clear();
+        parser.parse("A\"ML=1;lg=-0.18305;ml=24", batch.appender(), NO_VALIDATION);
+
+        assertThat(batch.size(), is(1));
+        assertThat(batch.get(0), is(new AmlMessage(1, null, -0.18305, null, null, null, null, null, null, null, null, 24)));
+    }
+
+    @Test
+    public void removesRowsRejectedByTheValidator() throws AmlException {
+        AmlMessageBatch batch = AmlMessageBatch.onHeap();
+        parser.parse(message(1), batch.appender(), batch.validator(DefaultValidator.INSTANCE));
+
+        ParseResult<AmlMessageBatch> rejected = parser.tryParse("A\"ML=2;lg=-0.18305;ml=24", batch.appender(), batch.validator(DefaultValidator.INSTANCE));
+
+        assertThat(rejected.getMessage(), is("unknown interface version: 2"));
+        assertThat(batch.size(), is(1));
+        assertThat(parser.tryParse("A\"ML=2;si=imsi;ml=20", batch.appender(), batch.validator(DefaultValidator.INSTANCE)).getError(), is(ParseError.VALIDATION));
+        assertThat(batch.size(), is(1));
+        assertThat(batch.get(0), is(parser.parse(message(1))));
+        assertThat(batch.select().within(-90, 90, -180, 180).count(), is(1));
+    }
+
+    @Test
+    public void keepsIdentifiersWhichCannotBePacked() {
+        AmlMessageBatch batch = AmlMessageBatch.onHeap();
+
+        batch.appender().imsi("001010123456789").imei("35-209900-176148-1").mcc("1").mnc("mnc").build();
+
+        assertThat(batch.get(0), is(new AmlMessage(null, null, null, null, "001010123456789", "35-209900-176148-1", null, null, null, "1", "mnc", null)));
+    }
+
+    @Test
+    public void offHeapBatchHasFixedCapacity() {
+        AmlMessageBatch batch = AmlMessageBatch.offHeap(1);
+        batch.appender().version(1).build();
+
+        thrown.expect(IllegalStateException.class);
+
+        batch.appender().version(1).build();
+    }
+
+    /**
+     * @return a valid message, GNSS for even rows, with a radius equal to the row and the row as second of the time
+     */
+    private static String message(int row) {
+        String body = String.format("A\"ML=1;lt=+%08.5f;lg=-0.18305;rd=%d;top=201307171419%02d;lc=90;pm=%s;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30",
+                row / 10.0, row, row % 60, row % 2 == 0 ? "G" : "C");
+        int length = body.length() + ";ml=".length() + 3;
+        return body + ";ml=" + length;
+    }
+}
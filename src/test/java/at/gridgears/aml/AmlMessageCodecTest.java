@@ -0,0 +1,120 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.exceptions.AmlException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AmlMessageCodecTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+    private static final String NO_LOCATION = "A\"ML=1;lt=+00.00000;lg=+000.00000;rd=N;top=20130717141935;lc=90;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=129";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AmlMessageParser parser = new AmlMessageParser();
+
+    @Test
+    public void roundTripsParsedMessages() throws AmlException {
+        ByteBuffer buffer = ByteBuffer.allocate(2 * AmlMessageCodec.RECORD_SIZE);
+
+        AmlMessageCodec.encode(parser.parse(VALID), buffer);
+        AmlMessageCodec.encode(parser.parse(NO_LOCATION), buffer);
+        buffer.flip();
+
+        assertThat(AmlMessageCodec.decode(buffer), is(parser.parse(VALID)));
+        assertThat(AmlMessageCodec.decode(buffer), is(parser.parse(NO_LOCATION)));
+        assertThat(buffer.hasRemaining(), is(false));
+    }
+
+    @Test
+    public void roundTripsMissingValuesAndLeadingZeros() {
+        AmlMessage message = new AmlMessage(null, 1.5, null, null, "001010123456789", null, Instant.ofEpochSecond(-1), null, null, "001", "01", null);
+        ByteBuffer buffer = ByteBuffer.allocateDirect(AmlMessageCodec.RECORD_SIZE);
+
+        AmlMessageCodec.encode(message, buffer, 0);
+
+        assertThat(AmlMessageCodec.decode(buffer, 0), is(message));
+    }
+
+    @Test
+    public void layoutIsIndependentOfBufferOrder() throws AmlException {
+        ByteBuffer bigEndian = ByteBuffer.allocate(AmlMessageCodec.RECORD_SIZE);
+        ByteBuffer littleEndian = ByteBuffer.allocate(AmlMessageCodec.RECORD_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+        AmlMessageCodec.encode(parser.parse(VALID), bigEndian, 0);
+        AmlMessageCodec.encode(parser.parse(VALID), littleEndian, 0);
+
+        assertThat(littleEndian, is(bigEndian));
+        assertThat(AmlMessageCodec.decode(littleEndian, 0), is(parser.parse(VALID)));
+        assertThat(bigEndian.getShort(AmlMessageCodec.LENGTH_OFFSET), is((short) 128));
+    }
+
+    @Test
+    public void recordReadsValuesInPlace() throws AmlException {
+        ByteBuffer buffer = ByteBuffer.allocate(3 * AmlMessageCodec.RECORD_SIZE);
+        AmlMessageCodec.encode(parser.parse(NO_LOCATION), buffer, AmlMessageCodec.RECORD_SIZE);
+
+        AmlMessageRecord record = new AmlMessageRecord().wrap(buffer, AmlMessageCodec.RECORD_SIZE);
+
+        assertThat(record.getLatitude(), is(0.0));
+        assertThat(record.getRadiusMeters(), is(Double.NaN));
+        assertThat(record.getEpochSecond(), is(1374070775L));
+        assertThat(record.getPositionMethod(), is(PositioningMethod.NO_LOCATION));
+        assertThat(record.getLength(), is(129));
+        assertThat(record.toAmlMessage().getRadiusMeters(), nullValue());
+    }
+
+    @Test
+    public void rejectsNonNumericIdentifiers() {
+        AmlMessage message = new AmlMessage(1, null, null, null, "imsi", null, null, null, null, null, null, null);
+
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("identifiers must be numeric");
+
+        AmlMessageCodec.encode(message, ByteBuffer.allocate(AmlMessageCodec.RECORD_SIZE));
+    }
+
+    @Test
+    public void rejectsUnknownFormatVersion() {
+        ByteBuffer buffer = ByteBuffer.allocate(AmlMessageCodec.RECORD_SIZE);
+        buffer.put(0, (byte) 2);
+
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("unknown format version: 2");
+
+        AmlMessageCodec.decode(buffer);
+    }
+}
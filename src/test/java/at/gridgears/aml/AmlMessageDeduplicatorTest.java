@@ -0,0 +1,128 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AmlMessageDeduplicatorTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    private final AtomicLong now = new AtomicLong(Long.MAX_VALUE - 1000);
+
+    private final AmlMessageDeduplicator deduplicator = new AmlMessageDeduplicator(1024, Duration.ofNanos(100), now::get);
+
+    @Test
+    public void detectsRetransmission() {
+        assertThat(deduplicator.isDuplicate(VALID), is(false));
+        assertThat(deduplicator.isDuplicate(VALID), is(true));
+        assertThat(deduplicator.isDuplicate(VALID.replace("lc=90", "lc=91")), is(false));
+
+        assertThat(deduplicator.getHitCount(), is(1L));
+        assertThat(deduplicator.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void bytesAndCharactersAreTheSameMessage() {
+        byte[] bytes = ("xx" + VALID).getBytes(StandardCharsets.ISO_8859_1);
+
+        assertThat(deduplicator.isDuplicate(VALID), is(false));
+        assertThat(deduplicator.isDuplicate(bytes, 2, bytes.length - 2), is(true));
+    }
+
+    @Test
+    public void forgetsMessageAfterTimeToLive() {
+        deduplicator.isDuplicate(VALID);
+
+        // crosses the overflow of the clock
+        now.addAndGet(99);
+        assertThat(deduplicator.isDuplicate(VALID), is(true));
+        now.addAndGet(1);
+        assertThat(deduplicator.isDuplicate(VALID), is(false));
+        assertThat(deduplicator.isDuplicate(VALID), is(true));
+    }
+
+    @Test
+    public void timeToLiveCountsFromFirstSighting() {
+        deduplicator.isDuplicate(VALID);
+        now.addAndGet(60);
+        deduplicator.isDuplicate(VALID);
+        now.addAndGet(40);
+
+        assertThat(deduplicator.isDuplicate(VALID), is(false));
+    }
+
+    @Test
+    public void identifiesMessageByImsiImeiAndTimeOfPositioning() throws Exception {
+        AmlMessage sms = new AmlMessageParser().parse(VALID);
+        AmlMessage https = DefaultAmlMessageBuilder.newAdvancedMobileLocation().imsi("123456789012345").imei("1234567890123456").timeOfPositioning(Instant.parse("2013-07-17T14:19:35Z")).build();
+        AmlMessage other = DefaultAmlMessageBuilder.newAdvancedMobileLocation().imsi("123456789012345").imei("1234567890123456").timeOfPositioning(Instant.parse("2013-07-17T14:19:36Z")).build();
+
+        assertThat(deduplicator.isDuplicate(sms), is(false));
+        assertThat(deduplicator.isDuplicate(https), is(true));
+        assertThat(deduplicator.isDuplicate(other), is(false));
+    }
+
+    @Test
+    public void unpackedIdentifiersAreSupported() {
+        Instant top = Instant.parse("2013-07-17T14:19:35Z");
+        AmlMessage message = DefaultAmlMessageBuilder.newAdvancedMobileLocation().imsi("unknown").timeOfPositioning(top).build();
+
+        assertThat(deduplicator.isDuplicate(message), is(false));
+        assertThat(deduplicator.isDuplicate(DefaultAmlMessageBuilder.newAdvancedMobileLocation().imsi("unknown").timeOfPositioning(top).build()), is(true));
+        assertThat(deduplicator.isDuplicate(DefaultAmlMessageBuilder.newAdvancedMobileLocation().imsi("null").timeOfPositioning(top).build()), is(false));
+        assertThat(deduplicator.isDuplicate(DefaultAmlMessageBuilder.newAdvancedMobileLocation().imei("null").timeOfPositioning(top).build()), is(false));
+    }
+
+    @Test
+    public void messagesWithoutTimeOfPositioningAreNeverDuplicates() throws Exception {
+        AmlMessage message = new AmlMessageParser().parse(VALID.replace("top=20130717141935;", "").replace("ml=128", "ml=109"));
+
+        assertThat(deduplicator.isDuplicate(message), is(false));
+        assertThat(deduplicator.isDuplicate(message), is(false));
+        assertThat(deduplicator.getMissCount(), is(2L));
+    }
+
+    @Test
+    public void memoryIsBounded() {
+        AmlMessageDeduplicator small = new AmlMessageDeduplicator(10, Duration.ofHours(1), now::get);
+        for (int i = 0; i < 1000; i++) {
+            small.isDuplicate(Integer.toString(i));
+            now.incrementAndGet();
+        }
+
+        assertThat(small.getCapacity(), is(16));
+        assertThat(small.isDuplicate("999"), is(true));
+        assertThat(small.isDuplicate("0"), is(false));
+    }
+}
@@ -24,7 +24,11 @@
 
 package at.gridgears.aml;
 
+import at.gridgears.aml.builder.AmlMessageBuilder;
+import at.gridgears.aml.builder.AmlMessageBuilderAdapter;
 import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.builder.PrimitiveAmlMessageBuilder;
+import at.gridgears.aml.builder.SelectiveAmlMessageBuilder;
 import at.gridgears.aml.exceptions.AmlException;
 import at.gridgears.aml.exceptions.AmlParseException;
 import at.gridgears.aml.validation.DefaultValidator;
@@ -34,8 +38,12 @@ import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.time.Instant;
+import java.util.EnumSet;
 import java.util.TimeZone;
 
 import static org.hamcrest.CoreMatchers.nullValue;
@@ -44,6 +52,8 @@ import static org.junit.Assert.assertThat;
 import static org.mockito.Matchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyZeroInteractions;
+import static org.mockito.Mockito.when;
 
 @SuppressWarnings("PMD.TooManyStaticImports")
 public class AmlMessageParserTest {
@@ -233,6 +243,257 @@ public class AmlMessageParserTest {
     }
 
 
+    @Test
+    public void validAmlMessageFromCharSequence() throws AmlException {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+        AmlMessage amlMessage = parser.parse(new StringBuilder(validMessage));
+
+        assertThat(amlMessage, is(parser.parse(validMessage)));
+    }
+
+    @Test
+    public void validAmlMessageFromByteArrayRange() throws AmlException {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+        byte[] bytes = ("xx" + validMessage + "yy").getBytes(StandardCharsets.US_ASCII);
+
+        AmlMessage amlMessage = parser.parse(bytes, 2, validMessage.length());
+
+        assertThat(amlMessage, is(parser.parse(validMessage)));
+    }
+
+    @Test
+    public void validAmlMessageFromDirectByteBuffer() throws AmlException {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+        ByteBuffer buffer = ByteBuffer.allocateDirect(200);
+        buffer.put((byte) 'x').put(validMessage.getBytes(StandardCharsets.US_ASCII)).flip().position(1);
+
+        AmlMessage amlMessage = parser.parse(buffer);
+
+        assertThat(amlMessage, is(parser.parse(validMessage)));
+        assertThat(buffer.position(), is(1));
+    }
+
+    @Test
+    public void invalidMessageLengthFromByteArray() throws AmlException {
+        byte[] bytes = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128".getBytes(StandardCharsets.US_ASCII);
+
+        thrown.expect(AmlParseException.class);
+
+        parser.parse(bytes, 0, bytes.length - 1);
+    }
+
+    @Test
+    public void validAmlMessageFromGsm7UserData() throws AmlException {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+        // a concatenation header of six bytes takes seven septets including the fill bit
+        byte[] userData = Gsm7UnpackerTest.pack(validMessage, 7);
+
+        AmlMessage amlMessage = parser.parseGsm7(userData, 0, 7, validMessage.length());
+
+        assertThat(amlMessage, is(parser.parse(validMessage)));
+    }
+
+    @Test
+    public void invalidMessageLengthFromGsm7UserDataIsReportedInSeptets() {
+        String message = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=127";
+
+        ParseResult<AmlMessage> result = parser.tryParseGsm7(Gsm7UnpackerTest.pack(message, 0), 0, 0, message.length());
+
+        assertThat(result.getError(), is(ParseError.MESSAGE_LENGTH));
+        assertThat(result.getOffset(), is(125));
+    }
+
+    @Test
+    public void unmappedGsm7CharactersAreRejected() {
+        // a Greek capital delta in si and an escape to the extension table, i.e. '{', in ei
+        String message = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=12345678901234\u0010;ei=123456789012345\u001b(;mcc=234;mnc=30;ml=129";
+
+        ParseResult<AmlMessage> result = parser.tryParseGsm7(Gsm7UnpackerTest.pack(message, 0), 0, 0, message.length());
+
+        assertThat(result.getError(), is(ParseError.INVALID_VALUE));
+        assertThat(result.getOffset(), is(85));
+    }
+
+    @Test
+    public void unmappedGsm7CharacterThrowsParseException() throws AmlException {
+        String message = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=123456789012345\u001b(;mcc=234;mnc=30;ml=129";
+
+        thrown.expect(AmlParseException.class);
+        thrown.expectMessage("unsupported GSM 7 bit character at offset 105");
+
+        parser.parseGsm7(Gsm7UnpackerTest.pack(message, 0), 0, 0, message.length());
+    }
+
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void primitiveBuilderReceivesUnboxedValues() throws AmlException {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=N;top=20130717141935;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=121";
+        PrimitiveAmlMessageBuilder<Object> builder = mock(PrimitiveAmlMessageBuilder.class);
+
+        parser.parse(validMessage, builder);
+
+        verify(builder).version(1);
+        verify(builder).latitude(54.76397D);
+        verify(builder).longitude(-0.18305D);
+        verify(builder).radiusMeters((Double) null);
+        verify(builder).levelOfConfidence((Integer) null);
+        verify(builder).timeOfPositioning(1374070775L);
+        verify(builder).length(121);
+        verify(builder).build();
+    }
+
+
+    @Test
+    public void validAmlMessageWithTimeOfPositioningCache() throws AmlException {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+        AmlMessageParser cachingParser = AmlMessageParser.withTimeOfPositioningCache();
+
+        assertThat(cachingParser.parse(validMessage), is(parser.parse(validMessage)));
+        assertThat(cachingParser.parse(validMessage), is(parser.parse(validMessage)));
+    }
+
+    @Test
+    public void threadLocalBuildersDoNotLeakValuesBetweenMessages() throws AmlException {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+        String noRadius = "A\"ML=1;lt=+00.00000;lg=+000.00000;rd=N;top=20130717141935;lc=90;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=129";
+        AmlMessageParser reusingParser = AmlMessageParser.withThreadLocalBuilders();
+
+        AmlMessage first = reusingParser.parse(validMessage);
+        AmlMessage second = reusingParser.parse(noRadius);
+
+        assertThat(first, is(parser.parse(validMessage)));
+        assertThat(second, is(parser.parse(noRadius)));
+        assertThat(second.getRadiusMeters(), nullValue());
+        assertThat(reusingParser.tryParse(validMessage).getValue(), is(first));
+    }
+
+    @Test
+    public void threadLocalBuildersReportErrors() throws AmlException {
+        String invalidLength = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=10";
+
+        thrown.expect(AmlParseException.class);
+        thrown.expectMessage("expected message length 10 but was 127");
+
+        AmlMessageParser.withThreadLocalBuilders().parse(invalidLength);
+    }
+
+    @Test
+    public void outOfRangeMonthInTimeOfPositioning() throws AmlException {
+        String invalidMonth = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20131317141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+        thrown.expect(AmlParseException.class);
+
+        parser.parse(invalidMonth);
+    }
+
+
+    @Test
+    public void tryParseValidMessage() {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+        ParseResult<AmlMessage> result = parser.tryParse(validMessage);
+
+        assertThat(result.isSuccess(), is(true));
+        assertThat(result.getValue().getLatitude(), is(54.76397D));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void tryParseReportsInvalidValueWithoutCallingBuilder() {
+        String invalidLatitude = "A\"ML=1;lt=+g4.7d397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+        AmlMessageBuilder<Object> builder = mock(AmlMessageBuilder.class);
+
+        ParseResult<Object> result = parser.tryParse(invalidLatitude, builder);
+
+        assertThat(result.isSuccess(), is(false));
+        assertThat(result.getError(), is(ParseError.INVALID_VALUE));
+        assertThat(result.getAttribute(), is("lt"));
+        assertThat(result.getOffset(), is(10));
+        verifyZeroInteractions(builder);
+    }
+
+    @Test
+    public void tryParseReportsMessageLength() {
+        String invalidMessageLength = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=10";
+
+        ParseResult<AmlMessage> result = parser.tryParse(invalidMessageLength);
+
+        assertThat(result.getError(), is(ParseError.MESSAGE_LENGTH));
+        assertThat(result.getAttribute(), is("ml"));
+    }
+
+    @Test
+    public void tryParseReportsValidationFailure() {
+        String unknownVersion = "A\"ML=2;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+        ParseResult<AmlMessage> result = parser.tryParse(unknownVersion);
+
+        assertThat(result.getError(), is(ParseError.VALIDATION));
+        assertThat(result.getValue(), nullValue());
+    }
+
+
+    @Test
+    public void selectiveBuilderSkipsOtherAttributes() throws AmlException {
+        String invalidTimeOfPositioning = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=2013x717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+        assertThat(parser.tryParse(invalidTimeOfPositioning).getError(), is(ParseError.INVALID_VALUE));
+        assertThat(parser.parse(invalidTimeOfPositioning, new LatitudeBuilder()), is(54.76397D));
+    }
+
+    @Test
+    public void selectiveBuilderStillChecksLength() throws AmlException {
+        String invalidMessageLength = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=10";
+
+        thrown.expect(AmlParseException.class);
+
+        parser.parse(invalidMessageLength, new LatitudeBuilder());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void selectivePrimitiveBuilderReceivesNullForOtherAttributes() throws AmlException {
+        String validMessage = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+        SelectivePrimitiveBuilder builder = mock(SelectivePrimitiveBuilder.class);
+        when(builder.consumedAttributes()).thenReturn(AttributeName.maskOf(EnumSet.of(AttributeName.LATITUDE, AttributeName.LONGITUDE, AttributeName.RADIUS, AttributeName.POSITIONING_METHOD)));
+
+        parser.parse(validMessage, builder);
+
+        verify(builder).version((Integer) null);
+        verify(builder).latitude(54.76397D);
+        verify(builder).longitude(-0.18305D);
+        verify(builder).radiusMeters(50D);
+        verify(builder).positionMethod(PositioningMethod.WIFI_SIGNAL);
+        verify(builder).timeOfPositioning((Instant) null);
+        verify(builder).imsi(null);
+        verify(builder).length(128);
+    }
+
+    private interface SelectivePrimitiveBuilder extends PrimitiveAmlMessageBuilder<Object>, SelectiveAmlMessageBuilder<Object> {
+    }
+
+    private static final class LatitudeBuilder extends AmlMessageBuilderAdapter<Double> implements SelectiveAmlMessageBuilder<Double> {
+        private Double latitude;
+
+        @Override
+        public AmlMessageBuilder<Double> latitude(Double latitude) {
+            this.latitude = latitude;
+            return this;
+        }
+
+        @Override
+        public long consumedAttributes() {
+            return AttributeName.LATITUDE.mask();
+        }
+
+        @Override
+        public Double build() {
+            return latitude;
+        }
+    }
+
     private static class NoValidation implements Validator<AmlMessage> {
         @Override
         public AmlMessage validate(AmlMessage message) {
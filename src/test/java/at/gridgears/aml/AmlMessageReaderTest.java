@@ -0,0 +1,224 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.validation.DefaultValidator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AmlMessageReaderTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+    private static final String NO_LOCATION = "A\"ML=1;lt=+00.00000;lg=+000.00000;rd=N;top=20130717141935;lc=90;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=129";
+    private static final String INVALID_LENGTH = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=10";
+    private static final String UNKNOWN_VERSION = "A\"ML=2;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AmlMessageParser parser = new AmlMessageParser();
+
+    private final List<AmlMessage> messages = new ArrayList<>();
+
+    private final List<String> errors = new ArrayList<>();
+
+    @Test
+    public void readsAllLinesWithSmallBuffer() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            input.append(i % 2 == 0 ? VALID : NO_LOCATION).append('\n');
+        }
+
+        long lines = newReader(200).read(stream(input.toString()), messages::add, this::error);
+
+        assertThat(lines, is(100L));
+        assertThat(messages.size(), is(100));
+        assertThat(messages.get(0), is(parser.parse(VALID)));
+        assertThat(messages.get(99), is(parser.parse(NO_LOCATION)));
+        assertThat(errors.isEmpty(), is(true));
+    }
+
+    @Test
+    public void ignoresCarriageReturnsAndEmptyLines() throws Exception {
+        long lines = newReader(200).read(stream(VALID + "\r\n\r\n\n" + NO_LOCATION), messages::add, this::error);
+
+        assertThat(lines, is(4L));
+        assertThat(messages.size(), is(2));
+        assertThat(messages.get(1), is(parser.parse(NO_LOCATION)));
+    }
+
+    @Test
+    public void reportsErrorsWithLineNumbers() throws Exception {
+        newReader(200).read(stream(VALID + "\n" + INVALID_LENGTH + "\n\n" + UNKNOWN_VERSION + "\n"), messages::add, this::error);
+
+        assertThat(messages.size(), is(1));
+        assertThat(errors.toString(), is("[2:MESSAGE_LENGTH, 4:VALIDATION]"));
+    }
+
+    @Test
+    public void skipsLinesLongerThanBuffer() throws Exception {
+        StringBuilder tooLong = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            tooLong.append(VALID);
+        }
+
+        newReader(200).read(stream(VALID + "\n" + tooLong + "\n" + NO_LOCATION + "\n" + tooLong), messages::add, this::error);
+
+        assertThat(messages.size(), is(2));
+        assertThat(errors.toString(), is("[2:MESSAGE_TOO_LONG, 4:MESSAGE_TOO_LONG]"));
+    }
+
+    @Test
+    public void iteratesResults() throws Exception {
+        Iterator<ParseResult<AmlMessage>> results = newReader(200).iterator(stream(VALID + "\n" + INVALID_LENGTH));
+
+        assertThat(results.next().getValue(), is(parser.parse(VALID)));
+        assertThat(results.hasNext(), is(true));
+        assertThat(results.next().getError(), is(ParseError.MESSAGE_LENGTH));
+        assertThat(results.hasNext(), is(false));
+    }
+
+    @Test
+    public void readsMappedFileInWindows() throws Exception {
+        StringBuilder input = new StringBuilder();
+        for (int i = 0; i < 50; i++) {
+            input.append(i == 25 ? INVALID_LENGTH : VALID).append("\r\n");
+        }
+        Path file = folder.newFile("messages.txt").toPath();
+        Files.write(file, input.toString().getBytes(StandardCharsets.ISO_8859_1));
+
+        long lines = newReader(300).read(file, messages::add, this::error);
+
+        assertThat(lines, is(50L));
+        assertThat(messages.size(), is(49));
+        assertThat(messages.get(48), is(parser.parse(VALID)));
+        assertThat(errors.toString(), is("[26:MESSAGE_LENGTH]"));
+    }
+
+    @Test
+    public void skipsLinesLongerThanBufferInMappedFile() throws Exception {
+        StringBuilder tooLong = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            tooLong.append(VALID);
+        }
+        Path file = folder.newFile("messages.txt").toPath();
+        Files.write(file, (VALID + "\n" + tooLong + "\n" + NO_LOCATION + "\n" + tooLong).getBytes(StandardCharsets.ISO_8859_1));
+
+        newReader(200).read(file, messages::add, this::error);
+
+        assertThat(messages.size(), is(2));
+        assertThat(errors.toString(), is("[2:MESSAGE_TOO_LONG, 4:MESSAGE_TOO_LONG]"));
+    }
+
+    @Test
+    public void movesMappedWindowsOverFile() throws Exception {
+        Path file = folder.newFile("messages.txt").toPath();
+        Files.write(file, (VALID + "\n" + NO_LOCATION + "\n" + VALID + VALID + "\n" + VALID).getBytes(StandardCharsets.ISO_8859_1));
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            LineScanner lines = LineScanner.mapping(channel, 200, 300);
+            List<String> found = new ArrayList<>();
+            while (lines.next()) {
+                found.add(lines.lineNumber() + ":" + (lines.isTooLong() ? "too long" : lines.length()));
+            }
+
+            assertThat(found.toString(), is("[1:128, 2:129, 3:too long, 4:128]"));
+        }
+    }
+
+    @Test
+    public void failsOnChannelWithoutData() throws Exception {
+        thrown.expect(IOException.class);
+
+        newReader(200).read(new EmptyChannel(), messages::add, this::error);
+    }
+
+    @Test
+    public void iteratesMappedFile() throws Exception {
+        Path file = folder.newFile("messages.txt").toPath();
+        Files.write(file, (VALID + "\n\n" + INVALID_LENGTH + "\n" + NO_LOCATION).getBytes(StandardCharsets.ISO_8859_1));
+
+        Iterator<ParseResult<AmlMessage>> results = newReader(200).iterator(file);
+
+        assertThat(results.next().getValue(), is(parser.parse(VALID)));
+        assertThat(results.next().getError(), is(ParseError.MESSAGE_LENGTH));
+        assertThat(results.next().getValue(), is(parser.parse(NO_LOCATION)));
+        assertThat(results.hasNext(), is(false));
+        assertThat(Files.deleteIfExists(file), is(true));
+    }
+
+    private AmlMessageReader<AmlMessage> newReader(int bufferSize) {
+        return new AmlMessageReader<>(parser, DefaultAmlMessageBuilder.newAdvancedMobileLocation(), new DefaultValidator(), bufferSize);
+    }
+
+    private void error(ParseResult<AmlMessage> result, long line) {
+        errors.add(line + ":" + result.getError());
+    }
+
+    private static InputStream stream(String input) {
+        return new ByteArrayInputStream(input.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    /**
+     * Non-blocking channel which never has data.
+     */
+    private static final class EmptyChannel implements ReadableByteChannel {
+        @Override
+        public int read(ByteBuffer target) {
+            return 0;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
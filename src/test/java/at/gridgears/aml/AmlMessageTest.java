@@ -0,0 +1,92 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.not;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AmlMessageTest {
+
+    @Test
+    public void keepsAllValues() {
+        Instant timeOfPositioning = Instant.ofEpochSecond(1374070775L, 123);
+        AmlMessage message = new AmlMessage(1, 54.76397, -0.18305, 50.0, "001010123456789", "0123456789012345", timeOfPositioning, 90, PositioningMethod.WIFI_SIGNAL, "001", "01", 128);
+
+        assertThat(message.getVersion(), is(1));
+        assertThat(message.getLatitude(), is(54.76397));
+        assertThat(message.getLongitude(), is(-0.18305));
+        assertThat(message.getRadiusMeters(), is(50.0));
+        assertThat(message.getImsi(), is("001010123456789"));
+        assertThat(message.getImei(), is("0123456789012345"));
+        assertThat(message.getTimeOfPositioning(), is(timeOfPositioning));
+        assertThat(message.getLevelOfConfidence(), is(90));
+        assertThat(message.getPositionMethod(), is(PositioningMethod.WIFI_SIGNAL));
+        assertThat(message.getMcc(), is("001"));
+        assertThat(message.getMnc(), is("01"));
+        assertThat(message.getLength(), is(128));
+    }
+
+    @Test
+    public void distinguishesMissingFromZeroValues() {
+        AmlMessage missing = new AmlMessage(null, null, null, null, null, null, null, null, null, null, null, null);
+        AmlMessage zero = new AmlMessage(0, 0.0, 0.0, 0.0, null, null, Instant.EPOCH, 0, null, null, null, 0);
+
+        assertThat(missing.getVersion(), nullValue());
+        assertThat(missing.getLatitude(), nullValue());
+        assertThat(missing.getTimeOfPositioning(), nullValue());
+        assertThat(missing.getMcc(), nullValue());
+        assertThat(zero.getLatitude(), is(0.0));
+        assertThat(zero.getTimeOfPositioning(), is(Instant.EPOCH));
+        assertThat(missing, not(zero));
+    }
+
+    @Test
+    public void keepsIdentifiersWhichCannotBePacked() {
+        AmlMessage message = new AmlMessage(1, null, null, null, "1234567890123456789", "35-209900-176148-1", null, null, null, "", "mnc", null);
+
+        assertThat(message.getImsi(), is("1234567890123456789"));
+        assertThat(message.getImei(), is("35-209900-176148-1"));
+        assertThat(message.getMcc(), is(""));
+        assertThat(message.getMnc(), is("mnc"));
+        assertThat(message, is(new AmlMessage(1, null, null, null, "1234567890123456789", "35-209900-176148-1", null, null, null, "", "mnc", null)));
+        assertThat(message, not(new AmlMessage(1, null, null, null, "1234567890123456789", "35-209900-176148-2", null, null, null, "", "mnc", null)));
+    }
+
+    @Test
+    public void equalMessagesHaveEqualHashCodes() {
+        AmlMessage message = new AmlMessage(1, 54.76397, -0.18305, null, "123456789012345", "1234567890123456", Instant.ofEpochSecond(1374070775L), 90, PositioningMethod.CELL, "234", "30", 128);
+        AmlMessage copy = new AmlMessage(1, 54.76397, -0.18305, null, "123456789012345", "1234567890123456", Instant.ofEpochSecond(1374070775L), 90, PositioningMethod.CELL, "234", "30", 128);
+
+        assertThat(message, is(copy));
+        assertThat(message.hashCode(), is(copy.hashCode()));
+        assertThat(message.toString(), is(copy.toString()));
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.exceptions.AmlException;
+import at.gridgears.aml.exceptions.AmlParseException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AmlMessageViewTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+    private static final String NO_LOCATION = "A\"ML=1;lt=+00.00000;lg=+000.00000;rd=N;top=20130717141935;lc=90;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=129";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AmlMessageParser parser = new AmlMessageParser();
+
+    private final AmlMessageView view = new AmlMessageView();
+
+    @Test
+    public void decodesValuesOnDemand() throws AmlException {
+        view.wrap(VALID);
+
+        assertThat(view.getLatitude(), is(54.76397D));
+        assertThat(view.getLongitude(), is(-0.18305D));
+        assertThat(view.getRadiusMeters(), is(50D));
+        assertThat(view.toAmlMessage(), is(parser.parse(VALID)));
+    }
+
+    @Test
+    public void canBeRepointed() throws AmlException {
+        view.wrap(VALID);
+        view.wrap(ByteBuffer.wrap(NO_LOCATION.getBytes(StandardCharsets.ISO_8859_1)));
+
+        assertThat(view.getRadiusMeters(), nullValue());
+        assertThat(view.getPositionMethod(), is(PositioningMethod.NO_LOCATION));
+        assertThat(view.toAmlMessage(), is(parser.parse(NO_LOCATION)));
+    }
+
+    @Test
+    public void checksLengthWhenPointedAtMessage() throws AmlException {
+        thrown.expect(AmlParseException.class);
+        thrown.expectMessage("expected message length 128 but was 127");
+
+        view.wrap(VALID.replace("lt=+54.76397", "lt=+54.7639"));
+    }
+
+    @Test
+    public void reportsInvalidValueOnlyWhenRead() throws AmlException {
+        view.wrap(VALID.replace("top=20130717141935", "top=20131317141935"));
+
+        assertThat(view.getLatitude(), is(54.76397D));
+
+        thrown.expect(AmlParseException.class);
+        thrown.expectMessage("Could not parse top=20131317141935");
+
+        view.getTimeOfPositioning();
+    }
+
+    @Test
+    public void isUnusableAfterFailedWrap() throws AmlException {
+        view.wrap(VALID);
+        try {
+            view.wrap("A\"ML=1;kl=1;ml=17");
+        } catch (AmlParseException e) {
+            assertThat(e.getMessage(), is("unknown attributes [kl]"));
+        }
+
+        thrown.expect(IllegalStateException.class);
+
+        view.getLatitude();
+    }
+}
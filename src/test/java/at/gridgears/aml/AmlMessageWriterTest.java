@@ -0,0 +1,133 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.exceptions.AmlException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AmlMessageWriterTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-000.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=130";
+    private static final String NO_LOCATION = "A\"ML=1;lt=+00.00000;lg=+000.00000;rd=N;top=20130717141935;lc=90;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=129";
+
+    private final AmlMessageParser parser = new AmlMessageParser();
+
+    private final AmlMessageWriter writer = new AmlMessageWriter();
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    @Test
+    public void rendersParsedMessagesUnchanged() throws AmlException {
+        assertThat(writer.write(parser.parse(VALID)), is(VALID));
+        assertThat(writer.write(parser.parse(NO_LOCATION)), is(NO_LOCATION));
+    }
+
+    @Test
+    public void computesLengthIncludingItsOwnDigits() throws AmlException {
+        for (int imsiDigits = 1; imsiDigits <= 18; imsiDigits++) {
+            String imsi = "123456789012345678".substring(0, imsiDigits);
+            AmlMessage message = new AmlMessage(1, 10.0, 20.0, 5.0, imsi, null, Instant.ofEpochSecond(0), 68, PositioningMethod.GNSS, null, null, null);
+
+            String rendered = writer.write(message);
+
+            assertThat(parser.parse(rendered).getLength(), is(rendered.length()));
+            assertThat(parser.parse(rendered).getImsi(), is(imsi));
+        }
+    }
+
+    @Test
+    public void writesSignsPaddingAndTimestamps() {
+        AmlMessage message = new AmlMessage(null, -0.000001, -179.5, null, null, null, Instant.parse("2000-02-29T23:59:58Z"), null, PositioningMethod.CELL, "001", "01", null);
+
+        assertThat(writer.write(message), is("lt=+00.00000;lg=-179.50000;rd=N;top=20000229235958;pm=C;mcc=001;mnc=01;ml=76"));
+        assertThat(writer.write(new AmlMessage(null, null, null, null, null, null, null, null, null, null, null, null)), is("ml=4"));
+    }
+
+    @Test
+    public void writesIdentifiersWhichCannotBePacked() throws AmlException {
+        AmlMessage message = new AmlMessage(1, null, null, null, "imsi", "35-209900-176148-1", null, null, null, "234", "30", null);
+
+        String rendered = writer.write(message);
+
+        assertThat(rendered, is("A\"ML=1;si=imsi;ei=35-209900-176148-1;mcc=234;mnc=30;ml=57"));
+        assertThat(parser.parse(rendered).getImei(), is("35-209900-176148-1"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIdentifiersContainingSeparators() {
+        writer.write(new AmlMessage(null, null, null, null, "imsi;lt=1", null, null, null, null, null, null, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIdentifiersContainingEquals() {
+        writer.write(new AmlMessage(null, null, null, null, null, null, null, null, null, "23=4", null, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsIdentifiersOutsideLatin1() {
+        writer.write(new AmlMessage(null, null, null, null, null, "\u20ac", null, null, null, null, null, null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsEmptyIdentifiers() {
+        writer.write(new AmlMessage(null, null, null, null, "", null, null, null, null, null, null, null));
+    }
+
+    @Test
+    public void rejectsFractionalRadius() {
+        AmlMessage message = new AmlMessage(1, 10.0, 20.0, 12.5, null, null, null, null, null, null, null, null);
+
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("radius is not a whole number of meters: 12.5");
+
+        writer.write(message);
+    }
+
+    @Test
+    public void writesIntoAllTargets() throws AmlException {
+        AmlMessage message = parser.parse(VALID);
+        byte[] array = new byte[200];
+        ByteBuffer buffer = ByteBuffer.allocateDirect(200);
+
+        int length = writer.write(message, array, 10);
+        writer.write(message, buffer);
+        StringBuilder builder = writer.write(message, new StringBuilder(">"));
+
+        assertThat(new String(array, 10, length, StandardCharsets.ISO_8859_1), is(VALID));
+        assertThat(buffer.position(), is(VALID.length()));
+        buffer.flip();
+        assertThat(parser.parse(buffer), is(message));
+        assertThat(builder.toString(), is(">" + VALID));
+    }
+}
@@ -0,0 +1,147 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlException;
+import at.gridgears.aml.exceptions.AmlValidationException;
+import at.gridgears.aml.validation.DefaultValidator;
+import at.gridgears.aml.validation.Validator;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AmlRulesTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AmlMessageParser parser = new AmlMessageParser(AmlSchema.DEFAULT, AmlRules.STANDARD);
+
+    @Test
+    public void validMessagePasses() throws AmlException {
+        assertThat(parser.parse(VALID), is(new AmlMessageParser().parse(VALID)));
+        assertThat(parser.parse(VALID.replace("rd=50;", "rd=N;").replace("ml=128", "ml=127")).getRadiusMeters(), is((Double) null));
+    }
+
+    @Test
+    public void parseThrowsValidationException() throws AmlException {
+        thrown.expect(AmlValidationException.class);
+        thrown.expectMessage("unknown interface version: 2");
+
+        parser.parse(VALID.replace("A\"ML=1", "A\"ML=2"));
+    }
+
+    @Test
+    public void versionRuleRequiresVersion() {
+        ParseResult<AmlMessage> result = parser.tryParse(VALID.replace("A\"ML=1;", "").replace("ml=128", "ml=121"));
+
+        assertThat(result.getError(), is(ParseError.VALIDATION));
+        assertThat(result.getMessage(), is("unknown interface version: null"));
+    }
+
+    @Test
+    public void validatesMissingVersionOfBuiltMessages() throws AmlException {
+        thrown.expect(AmlValidationException.class);
+        thrown.expectMessage("unknown interface version: null");
+
+        AmlRules.STANDARD.validate(DefaultAmlMessageBuilder.newAdvancedMobileLocation().levelOfConfidence(50).build());
+    }
+
+    @Test
+    public void rejectsBeforeDecodingOtherValues() {
+        ParseResult<AmlMessage> result = parser.tryParse(VALID.replace("lt=+54.76397", "lt=+94.76397").replace("top=20130717", "top=20131317"));
+
+        assertThat(result.getError(), is(ParseError.VALIDATION));
+        assertThat(result.getMessage(), is("lt out of range [-90.0, 90.0]: 94.76397"));
+    }
+
+    @Test
+    public void rejectsLevelOfConfidenceOutOfRange() {
+        ParseResult<AmlMessage> result = parser.tryParse(VALID.replace("lc=90", "lc=101").replace("ml=128", "ml=129"));
+
+        assertThat(result.getError(), is(ParseError.VALIDATION));
+        assertThat(result.getMessage(), is("lc out of range [0, 100]: 101"));
+    }
+
+    @Test
+    public void invalidValueIsParseError() {
+        ParseResult<AmlMessage> result = parser.tryParse(VALID.replace("lc=90", "lc=9x"));
+
+        assertThat(result.getError(), is(ParseError.INVALID_VALUE));
+        assertThat(result.getAttribute(), is("lc"));
+    }
+
+    @Test
+    public void laterRuleReplacesEarlierOne() {
+        AmlRules rules = AmlRules.NONE.radiusMeters(0, 10).version(1).radiusMeters(0, 100);
+
+        assertThat(rules.toString(), is("AmlRules[rd in [0.0, 100.0], A\"ML in [1.0, 1.0]]"));
+    }
+
+    @Test
+    public void rejectsInvalidRange() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("invalid range for lt: [10.0, -10.0]");
+
+        assertThat(AmlRules.NONE.latitude(10, -10), nullValue());
+    }
+
+    @Test
+    public void validatesBuiltMessages() throws AmlException {
+        thrown.expect(AmlValidationException.class);
+        thrown.expectMessage("lg out of range [-180.0, 180.0]: 181.0");
+
+        AmlRules.STANDARD.validate(DefaultAmlMessageBuilder.newAdvancedMobileLocation().version(1).longitude(181D).build());
+    }
+
+    @Test
+    public void chainStopsAtFirstRejection() throws AmlException {
+        Validator<AmlMessage> last = candidate -> {
+            throw new AssertionError("validator after rejection called");
+        };
+
+        Validator<AmlMessage> chain = Validator.chain(DefaultValidator.INSTANCE, AmlRules.STANDARD, last);
+        AmlMessage message = DefaultAmlMessageBuilder.newAdvancedMobileLocation().version(1).levelOfConfidence(120).build();
+
+        thrown.expect(AmlValidationException.class);
+        thrown.expectMessage("lc out of range [0, 100]: 120");
+
+        assertThat(chain.validate(message), is(message));
+    }
+
+    @Test
+    public void andThenRunsBothValidators() throws AmlException {
+        thrown.expect(AmlValidationException.class);
+        thrown.expectMessage("unknown interface version: 2");
+
+        AmlRules.NONE.andThen(DefaultValidator.INSTANCE).validate(DefaultAmlMessageBuilder.newAdvancedMobileLocation().version(2).build());
+    }
+}
@@ -0,0 +1,179 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.AmlMessageBuilder;
+import at.gridgears.aml.builder.AmlMessageBuilderAdapter;
+import at.gridgears.aml.exceptions.AmlException;
+import at.gridgears.aml.exceptions.AmlParseException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AmlSchemaTest {
+    private static final String PREFIX = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;";
+
+    private static final AmlExtension<Integer> HANDSET_LOCATION_PROVIDER = AmlExtension.ofInteger("hlp");
+
+    private static final AmlExtension<String> SOURCE = AmlExtension.ofString("x-src");
+
+    private static final AmlSchema SCHEMA = AmlSchema.of(HANDSET_LOCATION_PROVIDER, SOURCE);
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final AmlMessageParser parser = new AmlMessageParser(SCHEMA);
+
+    @Test
+    public void passesExtensionsToBuilder() throws AmlException {
+        Map<String, Object> extensions = parser.parse(PREFIX + "hlp=4;x-src=net;ml=144", new ExtensionBuilder());
+
+        assertThat(extensions.get("hlp"), is((Object) 4));
+        assertThat(extensions.get("x-src"), is((Object) "net"));
+    }
+
+    @Test
+    public void missingExtensionIsNull() throws AmlException {
+        Map<String, Object> extensions = parser.parse(PREFIX + "hlp=4;ml=134", new ExtensionBuilder());
+
+        assertThat(extensions.containsKey("x-src"), is(true));
+        assertThat(extensions.get("x-src"), nullValue());
+    }
+
+    @Test
+    public void standardAttributesAreUnchanged() throws AmlException {
+        AmlMessage message = parser.parse(PREFIX + "hlp=4;ml=134");
+
+        assertThat(message.getLatitude(), is(54.76397D));
+        assertThat(message.getMnc(), is("30"));
+        assertThat(message.getLength(), is(134));
+    }
+
+    @Test
+    public void invalidExtensionValueIsReported() {
+        ParseResult<AmlMessage> result = parser.tryParse(PREFIX + "hlp=four;ml=137");
+
+        assertThat(result.getError(), is(ParseError.INVALID_VALUE));
+        assertThat(result.getAttribute(), is("hlp"));
+        assertThat(result.getOffset(), is(PREFIX.length() + 4));
+    }
+
+    @Test
+    public void otherAttributesAreStillUnknown() {
+        ParseResult<AmlMessage> result = parser.tryParse(PREFIX + "hlp=4;zz=1;ml=139");
+
+        assertThat(result.getError(), is(ParseError.UNKNOWN_ATTRIBUTE));
+    }
+
+    @Test
+    public void defaultSchemaRejectsExtensions() {
+        assertThat(new AmlMessageParser().tryParse(PREFIX + "hlp=4;ml=134").getError(), is(ParseError.UNKNOWN_ATTRIBUTE));
+    }
+
+    @Test
+    public void viewDecodesExtension() throws AmlException {
+        AmlMessageView view = parser.newView().wrap(PREFIX + "hlp=4;ml=134");
+
+        assertThat(view.get(HANDSET_LOCATION_PROVIDER), is(4));
+        assertThat(view.get(SOURCE), nullValue());
+    }
+
+    @Test
+    public void viewReportsInvalidExtensionValue() throws AmlException {
+        AmlMessageView view = parser.newView().wrap(PREFIX + "hlp=four;ml=137");
+
+        thrown.expect(AmlParseException.class);
+        thrown.expectMessage("Could not parse hlp=four");
+
+        view.get(HANDSET_LOCATION_PROVIDER);
+    }
+
+    @Test
+    public void rejectsKeyDefinedByAml() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("extension key is defined by AML: mcc");
+
+        AmlSchema.of(AmlExtension.ofString("mcc"));
+    }
+
+    @Test
+    public void rejectsKeyDeclaredTwice() {
+        thrown.expect(IllegalArgumentException.class);
+        thrown.expectMessage("extension key declared twice: hlp");
+
+        AmlSchema.of(HANDSET_LOCATION_PROVIDER, AmlExtension.ofString("hlp"));
+    }
+
+    @Test
+    public void rejectsSeparatorInKey() {
+        thrown.expect(IllegalArgumentException.class);
+
+        AmlSchema.of(AmlExtension.ofString("a=b"));
+    }
+
+    @Test
+    public void rejectsTooManyExtensions() {
+        AmlExtension<?>[] extensions = new AmlExtension<?>[AmlSchema.MAX_EXTENSIONS + 1];
+        for (int i = 0; i < extensions.length; i++) {
+            extensions[i] = AmlExtension.ofString("x" + i);
+        }
+
+        thrown.expect(IllegalArgumentException.class);
+
+        AmlSchema.of(extensions);
+    }
+
+    @Test
+    public void resolvesKeysSharingFirstCharacterAndLength() throws AmlException {
+        AmlExtension<String> first = AmlExtension.ofString("xa");
+        AmlExtension<String> second = AmlExtension.ofString("xb");
+        AmlMessageView view = new AmlMessageView(AmlSchema.of(first, second)).wrap("xb=2;xa=1;ml=15");
+
+        assertThat(view.get(first), is("1"));
+        assertThat(view.get(second), is("2"));
+    }
+
+    private static final class ExtensionBuilder extends AmlMessageBuilderAdapter<Map<String, Object>> {
+        private final Map<String, Object> extensions = new LinkedHashMap<>();
+
+        @Override
+        public <V> AmlMessageBuilder<Map<String, Object>> extension(AmlExtension<V> extension, V value) {
+            extensions.put(extension.getKey(), value);
+            return this;
+        }
+
+        @Override
+        public Map<String, Object> build() {
+            return extensions;
+        }
+    }
+}
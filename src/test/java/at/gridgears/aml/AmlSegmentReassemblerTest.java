@@ -0,0 +1,181 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.exceptions.AmlException;
+import at.gridgears.aml.validation.DefaultValidator;
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class AmlSegmentReassemblerTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    private static final byte[] FIRST = VALID.substring(0, 60).getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] SECOND = VALID.substring(60).getBytes(StandardCharsets.ISO_8859_1);
+
+    private final List<ParseResult<AmlMessage>> results = new ArrayList<>();
+
+    private long now;
+
+    private final AmlSegmentReassembler<AmlMessage> reassembler = newReassembler(2);
+
+    @Test
+    public void joinsSegmentsInAnyOrder() throws AmlException {
+        AmlMessage expected = new AmlMessageParser().parse(VALID);
+
+        reassembler.accept(4366412345678L, 7, 2, 1, FIRST);
+        assertThat(results.isEmpty(), is(true));
+        reassembler.accept(4366412345678L, 7, 2, 2, SECOND);
+
+        reassembler.accept(4366412345678L, 8, 2, 2, SECOND);
+        reassembler.accept(4366412345678L, 8, 2, 1, FIRST);
+
+        assertThat(results.size(), is(2));
+        assertThat(results.get(0).getValue(), is(expected));
+        assertThat(results.get(1).getValue(), is(expected));
+        assertThat(reassembler.getCompletedCount(), is(2L));
+    }
+
+    @Test
+    public void parsesSingleSegmentRightAway() {
+        byte[] message = VALID.getBytes(StandardCharsets.ISO_8859_1);
+
+        assertThat(reassembler.accept(1L, 0, 1, 1, message), is(true));
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).isSuccess(), is(true));
+    }
+
+    @Test
+    public void separatesOriginatorsWithSameReference() {
+        reassembler.accept(1L, 7, 2, 1, FIRST);
+        reassembler.accept(2L, 7, 2, 1, FIRST);
+        reassembler.accept(1L, 7, 2, 2, SECOND);
+
+        assertThat(results.size(), is(1));
+
+        reassembler.accept(2L, 7, 2, 2, SECOND);
+
+        assertThat(results.size(), is(2));
+    }
+
+    @Test
+    public void ignoresDuplicateSegments() {
+        reassembler.accept(1L, 7, 2, 1, FIRST);
+        reassembler.accept(1L, 7, 2, 1, FIRST);
+        reassembler.accept(1L, 7, 2, 2, SECOND);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).isSuccess(), is(true));
+        assertThat(reassembler.getDuplicateCount(), is(1L));
+    }
+
+    @Test
+    public void rejectsInvalidSegments() {
+        assertThat(reassembler.accept(1L, 7, 2, 3, FIRST), is(false));
+        assertThat(reassembler.accept(1L, 7, 0, 1, FIRST), is(false));
+        assertThat(reassembler.accept(1L, 7, 9, 1, FIRST), is(false));
+        assertThat(reassembler.accept(1L, 7, 2, 1, new byte[154]), is(false));
+
+        assertThat(reassembler.accept(1L, 7, 2, 1, FIRST), is(true));
+        assertThat(reassembler.accept(1L, 7, 3, 2, SECOND), is(false));
+
+        assertThat(reassembler.getRejectedCount(), is(5L));
+        assertThat(results.isEmpty(), is(true));
+    }
+
+    @Test
+    public void expiresIncompleteMessages() {
+        reassembler.accept(1L, 7, 2, 1, FIRST);
+        now += TimeUnit.SECONDS.toNanos(9);
+        reassembler.expire();
+
+        assertThat(reassembler.getExpiredCount(), is(0L));
+
+        now += TimeUnit.SECONDS.toNanos(2);
+        reassembler.accept(1L, 7, 2, 2, SECOND);
+
+        assertThat(reassembler.getExpiredCount(), is(1L));
+        assertThat(results.isEmpty(), is(true));
+    }
+
+    @Test
+    public void expiresAllMessagesAfterLongPause() {
+        reassembler.accept(1L, 7, 2, 1, FIRST);
+        now += TimeUnit.SECONDS.toNanos(5);
+        reassembler.accept(2L, 7, 2, 1, FIRST);
+        now += TimeUnit.HOURS.toNanos(1);
+        reassembler.expire();
+
+        assertThat(reassembler.getExpiredCount(), is(2L));
+    }
+
+    @Test
+    public void evictsOldestMessageWhenFull() {
+        reassembler.accept(1L, 7, 2, 1, FIRST);
+        now += TimeUnit.SECONDS.toNanos(1);
+        reassembler.accept(2L, 7, 2, 1, FIRST);
+        now += TimeUnit.SECONDS.toNanos(1);
+        reassembler.accept(3L, 7, 2, 1, FIRST);
+
+        assertThat(reassembler.getEvictedCount(), is(1L));
+
+        reassembler.accept(2L, 7, 2, 2, SECOND);
+        reassembler.accept(3L, 7, 2, 2, SECOND);
+        reassembler.accept(1L, 7, 2, 2, SECOND);
+
+        assertThat(results.size(), is(2));
+        assertThat(reassembler.getEvictedCount(), is(1L));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsTooManySegments() {
+        assertThat(new AmlSegmentReassembler<>(new AmlMessageParser(), DefaultAmlMessageBuilder.newAdvancedMobileLocation(), DefaultValidator.INSTANCE, results::add, 1, 65, 153, Duration.ofSeconds(1)), is((Object) null));
+    }
+
+    @Test
+    public void createsAdvancedMobileLocationReassembler() {
+        AmlSegmentReassembler<AmlMessage> defaults = AmlSegmentReassembler.newAdvancedMobileLocationReassembler(results::add, 16, Duration.ofMinutes(1));
+
+        defaults.accept(1L, 7, 2, 2, SECOND);
+        defaults.accept(1L, 7, 2, 1, FIRST);
+
+        assertThat(results.size(), is(1));
+        assertThat(results.get(0).isSuccess(), is(true));
+    }
+
+    private AmlSegmentReassembler<AmlMessage> newReassembler(int maxGroups) {
+        return new AmlSegmentReassembler<>(new AmlMessageParser(), DefaultAmlMessageBuilder.newAdvancedMobileLocation(), DefaultValidator.INSTANCE, results::add, maxGroups, 8, 153, Duration.ofSeconds(10), () -> now);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AttributeNameTest {
+
+    @Test
+    public void resolvesEveryName() {
+        for (AttributeName attributeName : AttributeName.values()) {
+            String text = attributeName.getText();
+            assertThat(AttributeName.of(text, 0, text.length()), is(attributeName));
+        }
+    }
+
+    @Test
+    public void resolvesNameInsideMessage() {
+        assertThat(AttributeName.of("lt=1;mnc=30", 5, 8), is(AttributeName.MNC));
+    }
+
+    @Test
+    public void unknownNamesAreNull() {
+        for (String text : new String[]{"", "l", "lx", "LT", "ml2", "mcx", "tap", "A\"MX", "AML", "level"}) {
+            assertThat(text, AttributeName.of(text, 0, text.length()), nullValue());
+        }
+    }
+
+    @Test
+    public void masksAreDistinctBits() {
+        long all = 0;
+        for (AttributeName attributeName : AttributeName.values()) {
+            assertThat(Long.bitCount(attributeName.mask()), is(1));
+            all |= attributeName.mask();
+        }
+        assertThat(Long.bitCount(all), is(AttributeName.COUNT));
+    }
+}
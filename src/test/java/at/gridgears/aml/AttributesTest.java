@@ -0,0 +1,149 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class AttributesTest {
+
+    @Test
+    public void resolvesAllKnownAttributes() {
+        Attributes attributes = Attributes.parse("A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128");
+
+        attributes.check();
+
+        assertThat(attributes.hasError(), is(false));
+        assertThat(attributes.get(AttributeName.VERSION, Attribute::getStringValue), is("1"));
+        assertThat(attributes.get(AttributeName.LATITUDE, Attribute::getStringValue), is("+54.76397"));
+        assertThat(attributes.get(AttributeName.LONGITUDE, Attribute::getStringValue), is("-0.18305"));
+        assertThat(attributes.get(AttributeName.RADIUS, Attribute::getStringValue), is("50"));
+        assertThat(attributes.get(AttributeName.TIME_OF_POSITIONING, Attribute::getStringValue), is("20130717141935"));
+        assertThat(attributes.get(AttributeName.LEVEL_OF_CONFIDENCE, Attribute::getStringValue), is("90"));
+        assertThat(attributes.get(AttributeName.POSITIONING_METHOD, Attribute::getStringValue), is("W"));
+        assertThat(attributes.get(AttributeName.IMSI, Attribute::getStringValue), is("123456789012345"));
+        assertThat(attributes.get(AttributeName.IMEI, Attribute::getStringValue), is("1234567890123456"));
+        assertThat(attributes.get(AttributeName.MCC, Attribute::getStringValue), is("234"));
+        assertThat(attributes.get(AttributeName.MNC, Attribute::getStringValue), is("30"));
+        assertThat(attributes.get(AttributeName.LENGTH, Attribute::getIntegerValue), is(128));
+    }
+
+    @Test
+    public void missingAttributeIsNull() {
+        Attributes attributes = Attributes.parse("A\"ML=1;ml=13");
+
+        assertThat(attributes.get(AttributeName.IMSI, Attribute::getStringValue), nullValue());
+    }
+
+    @Test
+    public void latestDuplicateWins() {
+        Attributes attributes = Attributes.parse("lc=10;lc=20");
+
+        assertThat(attributes.get(AttributeName.LEVEL_OF_CONFIDENCE, Attribute::getIntegerValue), is(20));
+    }
+
+    @Test
+    public void trailingSeparatorsAreIgnored() {
+        Attributes attributes = Attributes.parse("A\"ML=1;ml=14;;");
+
+        attributes.check();
+
+        assertThat(attributes.hasError(), is(false));
+        assertThat(attributes.get(AttributeName.LENGTH, Attribute::getIntegerValue), is(14));
+    }
+
+    @Test
+    public void emptyAttributeIsUnknown() {
+        Attributes attributes = Attributes.parse("A\"ML=1;;ml=13");
+
+        attributes.check();
+
+        assertThat(attributes.hasError(), is(true));
+        assertThat(attributes.toException().getMessage(), is("unknown attributes []"));
+    }
+
+    @Test
+    public void unknownAttributesAreReported() {
+        Attributes attributes = Attributes.parse("A\"ML=1;kl=23;ltx=1;ml=24");
+
+        attributes.check();
+
+        ParseResult<Object> result = attributes.toResult();
+        assertThat(result.getError(), is(ParseError.UNKNOWN_ATTRIBUTE));
+        assertThat(result.getOffset(), is(7));
+        assertThat(attributes.toException().getMessage(), is("unknown attributes [kl, ltx]"));
+    }
+
+    @Test
+    public void attributeWithoutValueCannotBeParsed() {
+        Attributes attributes = Attributes.parse("si=;ml=8");
+
+        assertThat(attributes.get(AttributeName.IMSI, Attribute::getStringValue), nullValue());
+        assertThat(attributes.hasError(), is(true));
+        assertThat(attributes.toException().getMessage(), is("Could not parse si="));
+    }
+
+    @Test
+    public void integerOverflowCannotBeParsed() {
+        Attributes attributes = Attributes.parse("lc=2147483648");
+
+        attributes.get(AttributeName.LEVEL_OF_CONFIDENCE, Attribute::getIntegerValue);
+
+        ParseResult<Object> result = attributes.toResult();
+        assertThat(result.getError(), is(ParseError.INVALID_VALUE));
+        assertThat(result.getAttribute(), is("lc"));
+        assertThat(result.getOffset(), is(3));
+    }
+
+    @Test
+    public void firstErrorIsKept() {
+        Attributes attributes = Attributes.parse("lt=x;lg=y;ml=10");
+
+        attributes.checkLength(10);
+        attributes.getDouble(AttributeName.LATITUDE);
+        attributes.getDouble(AttributeName.LONGITUDE);
+
+        assertThat(attributes.toException().getMessage(), is("Could not parse lt=x"));
+    }
+
+    @Test
+    public void lengthMismatchIsReported() {
+        Attributes attributes = Attributes.parse("A\"ML=1;ml=10");
+
+        attributes.checkLength(12);
+
+        assertThat(attributes.toResult().getError(), is(ParseError.MESSAGE_LENGTH));
+        assertThat(attributes.toException().getMessage(), is("expected message length 10 but was 12"));
+    }
+
+    @Test
+    public void integerBoundariesAreParsed() {
+        assertThat(Attributes.parse("lc=-2147483648").get(AttributeName.LEVEL_OF_CONFIDENCE, Attribute::getIntegerValue), is(Integer.MIN_VALUE));
+        assertThat(Attributes.parse("lc=+2147483647").get(AttributeName.LEVEL_OF_CONFIDENCE, Attribute::getIntegerValue), is(Integer.MAX_VALUE));
+    }
+}
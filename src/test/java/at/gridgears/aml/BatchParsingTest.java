@@ -0,0 +1,108 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.builder.DefaultAmlMessageBuilder;
+import at.gridgears.aml.validation.DefaultValidator;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.nullValue;
+import static org.junit.Assert.assertThat;
+
+public class BatchParsingTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+    private static final String NO_LOCATION = "A\"ML=1;lt=+00.00000;lg=+000.00000;rd=N;top=20130717141935;lc=90;pm=N;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=129";
+    private static final String INVALID_LENGTH = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=10";
+    private static final String UNKNOWN_VERSION = "A\"ML=2;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    private final AmlMessageParser parser = new AmlMessageParser();
+
+    private ForkJoinPool pool;
+
+    private List<String> messages;
+
+    @Before
+    public void init() {
+        pool = new ForkJoinPool(4);
+        messages = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            messages.add(Arrays.asList(VALID, NO_LOCATION, INVALID_LENGTH, UNKNOWN_VERSION).get(i % 4));
+        }
+    }
+
+    @After
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Test
+    public void parseAllKeepsOrderAndErrors() throws Exception {
+        BatchResult<AmlMessage> result = parser.parseAll(Arrays.asList(VALID, INVALID_LENGTH, NO_LOCATION, UNKNOWN_VERSION));
+
+        assertThat(result.size(), is(4));
+        assertThat(result.get(0), is(parser.parse(VALID)));
+        assertThat(result.getError(1), is(ParseError.MESSAGE_LENGTH));
+        assertThat(result.get(1), nullValue());
+        assertThat(result.get(2), is(parser.parse(NO_LOCATION)));
+        assertThat(result.getError(3), is(ParseError.VALIDATION));
+        assertThat(result.getResult(3).getMessage(), is("unknown interface version: 2"));
+        assertThat(result.getErrorCount(), is(2));
+    }
+
+    @Test
+    public void parallelParseAllEqualsSequential() throws InterruptedException {
+        BatchResult<AmlMessage> sequential = parser.parseAll(messages);
+        BatchResult<AmlMessage> parallel = parser.parseAll(messages, pool);
+
+        assertThat(parallel.size(), is(messages.size()));
+        for (int i = 0; i < messages.size(); i++) {
+            assertThat(parallel.get(i), is(sequential.get(i)));
+            assertThat(parallel.getError(i), is(sequential.getError(i)));
+        }
+        assertThat(parallel.getErrorCount(), is(5_000));
+    }
+
+    @Test
+    public void parallelStreamEqualsSequential() {
+        List<AmlMessage> sequential = parser.parseStream(messages, DefaultAmlMessageBuilder::newAdvancedMobileLocation, new DefaultValidator())
+                .map(ParseResult::getValue)
+                .collect(Collectors.toList());
+        List<AmlMessage> parallel = parser.parseStream(messages, DefaultAmlMessageBuilder::newAdvancedMobileLocation, new DefaultValidator())
+                .parallel()
+                .map(ParseResult::getValue)
+                .collect(Collectors.toList());
+
+        assertThat(parallel, is(sequential));
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import at.gridgears.aml.exceptions.AmlException;
+import at.gridgears.aml.exceptions.AmlParseException;
+import at.gridgears.aml.exceptions.AmlValidationException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.stream.IntStream;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.CoreMatchers.sameInstance;
+import static org.junit.Assert.assertThat;
+
+public class CachingAmlMessageParserTest {
+    private static final String VALID = "A\"ML=1;lt=+54.76397;lg=-0.18305;rd=50;top=20130717141935;lc=90;pm=W;si=123456789012345;ei=1234567890123456;mcc=234;mnc=30;ml=128";
+
+    @Rule
+    public ExpectedException thrown = ExpectedException.none();
+
+    private final CachingAmlMessageParser parser = new CachingAmlMessageParser(new AmlMessageParser(), 8);
+
+    @Test
+    public void answersRepeatedMessageFromCache() throws AmlException {
+        AmlMessage first = parser.parse(VALID);
+
+        assertThat(parser.parse(new String(VALID.toCharArray())), sameInstance(first));
+        assertThat(parser.tryParse(VALID).getValue(), sameInstance(first));
+        assertThat(first, is(new AmlMessageParser().parse(VALID)));
+        assertThat(parser.getMissCount(), is(1L));
+        assertThat(parser.getHitCount(), is(2L));
+    }
+
+    @Test
+    public void bytesHitCachedString() throws AmlException {
+        byte[] bytes = VALID.getBytes(StandardCharsets.ISO_8859_1);
+
+        AmlMessage first = parser.parse(VALID);
+
+        assertThat(parser.parse(bytes, 0, bytes.length), sameInstance(first));
+    }
+
+    @Test
+    public void remembersParseErrors() throws AmlException {
+        String invalid = VALID.replace("lc=90", "lc=9x");
+        assertThat(parser.tryParse(invalid).getError(), is(ParseError.INVALID_VALUE));
+
+        thrown.expect(AmlParseException.class);
+        thrown.expectMessage("Could not parse lc=9x");
+
+        try {
+            parser.parse(invalid);
+        } finally {
+            assertThat(parser.getHitCount(), is(1L));
+        }
+    }
+
+    @Test
+    public void remembersValidationFailures() throws AmlException {
+        String unknownVersion = VALID.replace("A\"ML=1", "A\"ML=2");
+        assertThat(parser.tryParse(unknownVersion).getMessage(), is("unknown interface version: 2"));
+
+        thrown.expect(AmlValidationException.class);
+        thrown.expectMessage("unknown interface version: 2");
+
+        parser.parse(unknownVersion);
+    }
+
+    @Test
+    public void onlyCachedFailuresLackStackTraces() {
+        String invalid = VALID.replace("lc=90", "lc=9x");
+
+        assertThat(stackTraceLength(invalid) > 0, is(true));
+        assertThat(stackTraceLength(invalid), is(0));
+    }
+
+    @Test
+    public void referencedMessagesGetSecondChance() {
+        for (int i = 10; i < 18; i++) {
+            parser.tryParse(withLevelOfConfidence(i));
+        }
+        parser.tryParse(withLevelOfConfidence(10));
+
+        parser.tryParse(withLevelOfConfidence(18));
+
+        assertThat(parser.getEvictionCount(), is(1L));
+        parser.tryParse(withLevelOfConfidence(10));
+        assertThat(parser.getHitCount(), is(2L));
+        parser.tryParse(withLevelOfConfidence(11));
+        assertThat(parser.getMissCount(), is(10L));
+    }
+
+    @Test
+    public void concurrentUseReturnsEqualResults() throws AmlException {
+        AmlMessage expected = new AmlMessageParser().parse(VALID);
+        CachingAmlMessageParser shared = new CachingAmlMessageParser(new AmlMessageParser(), 1024);
+
+        long matches = IntStream.range(0, 10_000).parallel().filter(i -> expected.equals(shared.tryParse(VALID).getValue())).count();
+
+        assertThat(matches, is(10_000L));
+        assertThat(shared.getHitCount() + shared.getMissCount(), is(10_000L));
+    }
+
+    private static String withLevelOfConfidence(int levelOfConfidence) {
+        return VALID.replace("lc=90", "lc=" + levelOfConfidence);
+    }
+
+    private int stackTraceLength(String message) {
+        try {
+            parser.parse(message);
+            throw new AssertionError("parsed " + message);
+        } catch (AmlException e) {
+            return e.getStackTrace().length;
+        }
+    }
+}
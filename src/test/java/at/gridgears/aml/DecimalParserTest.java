@@ -0,0 +1,72 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import org.junit.Test;
+
+import java.util.Locale;
+import java.util.Random;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+import static org.junit.Assert.assertTrue;
+
+public class DecimalParserTest {
+
+    @Test
+    public void equivalentToParseDoubleForCoordinates() {
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            String value = String.format(Locale.ROOT, "%+." + random.nextInt(9) + "f", (random.nextDouble() - 0.5) * 360);
+
+            assertThat(value, DecimalParser.parse(value, 0, value.length()), is(Double.parseDouble(value)));
+        }
+    }
+
+    @Test
+    public void equivalentToParseDoubleForLongValues() {
+        String[] values = {"0", "-0.0", "+000.00000", "1.", ".5", "123456789012345678901234567890", "0.000000000000000000000000123",
+                "9007199254740993", "3.141592653589793238462643383279", "50"};
+
+        for (String value : values) {
+            assertThat(value, DecimalParser.parse(value, 0, value.length()), is(Double.parseDouble(value)));
+        }
+    }
+
+    @Test
+    public void parsesRangeWithinMessage() {
+        assertThat(DecimalParser.parse("lt=+54.76397;", 3, 12), is(54.76397D));
+    }
+
+    @Test
+    public void rejectsMalformedValues() {
+        String[] values = {"", "+", "-", ".", "+g4.7d397", "1.2.3", "1e5", "NaN", "Infinity", " 1", "1d", "0x1p3"};
+
+        for (String value : values) {
+            assertTrue(value, Double.isNaN(DecimalParser.parse(value, 0, value.length())));
+        }
+    }
+}
@@ -81,4 +81,21 @@ public class DefaultValidatorTest {
 
         validator.validate(unknownInterfaceVersion);
     }
-}
\ No newline at end of file
+
+    @Test
+    public void capturesStackTraceByDefault() {
+        AmlMessage unknownInterfaceVersion = builder.version(2).build();
+
+        assertThat(stackTraceLength(DefaultValidator.INSTANCE, unknownInterfaceVersion) > 0, is(true));
+        assertThat(stackTraceLength(DefaultValidator.WITHOUT_STACK_TRACES, unknownInterfaceVersion), is(0));
+    }
+
+    private static int stackTraceLength(DefaultValidator validator, AmlMessage message) {
+        try {
+            validator.validate(message);
+            return -1;
+        } catch (AmlValidationException e) {
+            return e.getStackTrace().length;
+        }
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import org.junit.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class Gsm7UnpackerTest {
+    private static final String TEXT = "A\"ML=1;lt=+54.76397;ml=22";
+
+    @Test
+    public void unpacksAsciiCharacters() {
+        byte[] target = new byte[TEXT.length()];
+
+        assertThat(Gsm7Unpacker.unpack(pack(TEXT, 0), 0, 0, TEXT.length(), target), is(-1));
+
+        assertThat(new String(target, StandardCharsets.ISO_8859_1), is(TEXT));
+    }
+
+    @Test
+    public void skipsLeadingSeptetsAndBytes() {
+        for (int skip = 0; skip < 17; skip++) {
+            byte[] packed = pack(TEXT, skip);
+            byte[] userData = new byte[packed.length + 3];
+            System.arraycopy(packed, 0, userData, 3, packed.length);
+            byte[] target = new byte[TEXT.length() + 1];
+
+            Gsm7Unpacker.unpack(userData, 3, skip, TEXT.length(), target);
+
+            assertThat(new String(target, 0, TEXT.length(), StandardCharsets.ISO_8859_1), is(TEXT));
+        }
+    }
+
+    @Test
+    public void unpacksPartOfMessage() {
+        byte[] target = new byte[12];
+
+        Gsm7Unpacker.unpack(pack(TEXT, 0), 0, 7, 12, target);
+
+        assertThat(new String(target, StandardCharsets.ISO_8859_1), is("lt=+54.76397"));
+    }
+
+    @Test
+    public void mapsDefaultAlphabet() {
+        byte[] target = new byte[9];
+
+        int unmapped = Gsm7Unpacker.unpack(packSeptets(new int[]{0x00, 0x02, 0x10, 0x11, 0x1b, 0x24, 0x40, 0x5f, 0x7f}, 0), 0, 0, 9, target);
+
+        assertThat(unmapped, is(2));
+
+        assertThat(new String(target, StandardCharsets.ISO_8859_1), is("@$\u001b_\u001b\u00A4\u00A1\u00A7\u00E0"));
+    }
+
+    @Test(expected = IndexOutOfBoundsException.class)
+    public void rejectsMoreSeptetsThanBytes() {
+        Gsm7Unpacker.unpack(new byte[7], 0, 1, 8, new byte[8]);
+    }
+
+    static byte[] pack(String text, int skip) {
+        int[] septets = new int[text.length()];
+        for (int i = 0; i < septets.length; i++) {
+            septets[i] = text.charAt(i);
+        }
+        return packSeptets(septets, skip);
+    }
+
+    private static byte[] packSeptets(int[] septets, int skip) {
+        byte[] bytes = new byte[((skip + septets.length) * 7 + 7) / 8];
+        for (int i = 0; i < septets.length; i++) {
+            int bit = (skip + i) * 7;
+            bytes[bit / 8] |= (byte) (septets[i] << (bit % 8));
+            if (bit % 8 > 1) {
+                bytes[bit / 8 + 1] |= (byte) (septets[i] >> (8 - bit % 8));
+            }
+        }
+        return bytes;
+    }
+}
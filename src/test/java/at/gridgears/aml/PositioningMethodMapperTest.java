@@ -66,8 +66,21 @@ public class PositioningMethodMapperTest {
         positioningMethodMapper.get("ZZ");
     }
 
+    @Test
+    public void findReturnsNullOnUnknown() {
+        assertThat(positioningMethodMapper.find('Z'), nullValue());
+        assertThat(positioningMethodMapper.find('g'), nullValue());
+    }
+
     @Test
     public void returnsNullOnNull() {
         assertThat(positioningMethodMapper.get(null), nullValue());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void codeIsReverseOfResolve() {
+        for (PositioningMethod positioningMethod : values()) {
+            assertThat(positioningMethodMapper.get(String.valueOf(positioningMethodMapper.getCode(positioningMethod))), is(positioningMethod));
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml;
+
+import org.junit.Test;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Random;
+import java.util.TimeZone;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.junit.Assert.assertThat;
+
+public class TimestampParserTest {
+
+    private static final long YEAR_2100 = 4102444800L;
+
+    @Test
+    public void equivalentToSimpleDateFormatForValidTimestamps() throws ParseException {
+        SimpleDateFormat format = new SimpleDateFormat("yyyyMMddHHmmss");
+        format.setTimeZone(TimeZone.getTimeZone("UTC"));
+        Random random = new Random(42);
+
+        for (int i = 0; i < 100_000; i++) {
+            long epochSecond = (long) (random.nextDouble() * YEAR_2100);
+            String timestamp = format.format(new Date(epochSecond * 1000));
+
+            long expected = format.parse(timestamp).getTime() / 1000;
+
+            assertThat(timestamp, TimestampParser.UNCACHED.parseEpochSecond(timestamp, 0, timestamp.length()), is(expected));
+        }
+    }
+
+    @Test
+    public void cachingParserIsEquivalentForBursts() {
+        TimestampParser cachingParser = TimestampParser.cachingLastMinute();
+        String[] timestamps = {"20130717141935", "20130717141959", "20130717141900", "20130717142000", "20130717141935", "20130717141960", "20130717141935"};
+
+        for (String timestamp : timestamps) {
+            assertThat(timestamp, cachingParser.parseEpochSecond(timestamp, 0, 14), is(TimestampParser.UNCACHED.parseEpochSecond(timestamp, 0, 14)));
+        }
+    }
+
+    @Test
+    public void parsesLeapDay() {
+        assertThat(TimestampParser.UNCACHED.parseEpochSecond("20160229235959", 0, 14), is(1456790399L));
+        assertThat(TimestampParser.UNCACHED.parseEpochSecond("20000229000000", 0, 14), is(951782400L));
+    }
+
+    @Test
+    public void parsesRangeWithinMessage() {
+        assertThat(TimestampParser.UNCACHED.parseEpochSecond("top=20130717141935;", 4, 18), is(1374070775L));
+    }
+
+    @Test
+    public void rejectsOutOfRangeFields() {
+        String[] invalid = {"20131317141935", "20130017141935", "20130732141935", "20130700141935", "20130229141935",
+                "19000229141935", "20130717241935", "20130717146035", "20130717141960"};
+
+        for (String timestamp : invalid) {
+            assertThat(timestamp, TimestampParser.UNCACHED.parseEpochSecond(timestamp, 0, 14), is(TimestampParser.INVALID));
+        }
+    }
+
+    @Test
+    public void rejectsMalformedTimestamps() {
+        String[] invalid = {"", "20130717", "201307171419350", "2013071714193Z", "+0130717141935", "2013-7-17141935"};
+
+        for (String timestamp : invalid) {
+            assertThat(timestamp, TimestampParser.UNCACHED.parseEpochSecond(timestamp, 0, timestamp.length()), is(TimestampParser.INVALID));
+        }
+    }
+}
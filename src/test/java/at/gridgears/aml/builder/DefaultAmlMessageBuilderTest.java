@@ -0,0 +1,59 @@
+/*
+ * MIT License
+ *
+ * Copyright (c) 2017 GridGears
+ *
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ *
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ *
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ */
+
+package at.gridgears.aml.builder;
+
+import at.gridgears.aml.AmlMessage;
+import at.gridgears.aml.PositioningMethod;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+public class DefaultAmlMessageBuilderTest {
+
+    @Test
+    public void resetClearsAllValues() {
+        DefaultAmlMessageBuilder builder = DefaultAmlMessageBuilder.newAdvancedMobileLocation();
+
+        AmlMessage result = builder.imei("imei")
+                .imsi("imsi")
+                .latitude(12.0)
+                .longitude(13.0)
+                .length(12)
+                .levelOfConfidence(12)
+                .mcc("mcc")
+                .mnc("mnc")
+                .positionMethod(PositioningMethod.CELL)
+                .radiusMeters(12.0)
+                .version(1)
+                .timeOfPositioning(Instant.now())
+                .reset()
+                .build();
+
+        assertThat("all values cleared", result, is(new AmlMessage(null, null, null, null, null, null, null, null, null, null, null, null)));
+    }
+}